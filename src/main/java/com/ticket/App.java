@@ -1,15 +1,39 @@
 package com.ticket;
 
+import com.ticket.model.AnalysisProgress;
+import com.ticket.model.BuyLongResult;
+import com.ticket.model.BuyShortResult;
+import com.ticket.model.QueryPreference;
+import com.ticket.model.SeatClass;
 import com.ticket.model.Station;
 import com.ticket.model.TrainInfo;
-import com.ticket.model.TrainStop;
+import com.ticket.model.TransferItinerary;
+import com.ticket.output.OutputFormat;
+import com.ticket.output.ResultWriter;
+import com.ticket.server.QueryServer;
+import com.ticket.service.AnalysisListener;
+import com.ticket.service.BuyLongAnalyzer;
+import com.ticket.service.BuyShortAnalyzer;
 import com.ticket.service.StationService;
+import com.ticket.service.TicketPriceService;
 import com.ticket.service.TicketQueryService;
 import com.ticket.service.TrainRouteService;
-
+import com.ticket.service.TransferSearchService;
+import com.ticket.store.AvailabilityLog;
+import com.ticket.util.AppConfig;
+import com.ticket.util.ConfigLoader;
+import com.ticket.util.HttpUtil;
+import com.ticket.util.Profile;
+import com.ticket.util.TimeUtil;
+
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 /**
  * 12306 "买长乘短" 火车票查询工具
@@ -22,9 +46,77 @@ public class App {
     private final StationService stationService = new StationService();
     private final TicketQueryService ticketQueryService = new TicketQueryService(stationService);
     private final TrainRouteService trainRouteService = new TrainRouteService();
+    private final TicketPriceService ticketPriceService = new TicketPriceService();
+    private final BuyLongAnalyzer buyLongAnalyzer =
+            new BuyLongAnalyzer(stationService, ticketQueryService, trainRouteService);
+    private final BuyShortAnalyzer buyShortAnalyzer =
+            new BuyShortAnalyzer(stationService, ticketQueryService, trainRouteService);
+    private final TransferSearchService transferSearchService =
+            new TransferSearchService(stationService, ticketQueryService, trainRouteService);
+    private AvailabilityLog availabilityLog;
+    private final ResultWriter resultWriter;
+
+    /** 提示信息输出：表格格式下为标准输出，机器可读格式下改到标准错误，不混入结果 */
+    private final PrintStream console;
+
+    public App(OutputFormat format) {
+        this.resultWriter = new ResultWriter(format.create(System.out));
+        this.console = resultWriter.getRenderer().isMachineReadable() ? System.err : System.out;
+    }
 
     public static void main(String[] args) {
-        App app = new App();
+        // --format table|csv|jsonl|ndjson：结果输出格式，可出现在任意位置
+        OutputFormat format = OutputFormat.TABLE;
+        List<String> rest = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--format".equals(args[i]) && i + 1 < args.length) {
+                format = OutputFormat.fromName(args[++i]);
+                if (format == null) {
+                    System.err.println("未知输出格式: " + args[i] + "（可选 table、csv、jsonl、ndjson）");
+                    return;
+                }
+            } else {
+                rest.add(args[i]);
+            }
+        }
+
+        // --profile fast|polite|exhaustive、--config 文件、--set 配置项=值：运行参数
+        try {
+            AppConfig config = ConfigLoader.load(rest);
+            AppConfig.apply(config);
+            if (!Profile.DEFAULT.getName().equals(config.getProfile())) {
+                System.err.println(config);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("配置加载失败: " + e.getMessage());
+            return;
+        }
+
+        // --server [端口]：以常驻服务方式运行，提供本地 HTTP 查询接口
+        if (!rest.isEmpty() && "--server".equals(rest.get(0))) {
+            int port = QueryServer.DEFAULT_PORT;
+            if (rest.size() > 1) {
+                try {
+                    port = Integer.parseInt(rest.get(1));
+                } catch (NumberFormatException e) {
+                    System.err.println("无效端口: " + rest.get(1) + "（用法: --server [端口]，默认 " + QueryServer.DEFAULT_PORT + "）");
+                    return;
+                }
+            }
+            try {
+                new QueryServer(port).start();
+            } catch (Exception e) {
+                System.err.println("查询服务启动失败: " + e.getMessage());
+            }
+            return;
+        }
+
+        App app = new App(format);
+        // --query <出发> <到达> <日期>：非交互地查询一次，便于批量运行和管道处理
+        if (rest.size() >= 4 && "--query".equals(rest.get(0))) {
+            app.runOnce(rest.get(1), rest.get(2), rest.get(3));
+            return;
+        }
         app.run();
     }
 
@@ -35,12 +127,7 @@ public class App {
         System.out.println();
 
         // 1. 初始化车站数据和12306会话
-        try {
-            stationService.init();
-            ticketQueryService.init();
-        } catch (Exception e) {
-            System.err.println("初始化失败: " + e.getMessage());
-            System.err.println("请检查网络连接后重试。");
+        if (!init()) {
             return;
         }
 
@@ -66,19 +153,22 @@ public class App {
                 continue;
             }
 
+            // 5. 获取出行偏好（可跳过）
+            QueryPreference preference = inputPreference(scanner);
+
             System.out.println();
             System.out.println("正在查询 " + fromStation.getName() + " -> " + toStation.getName() + " (" + date + ") ...");
             System.out.println();
 
-            // 5. 执行查询
+            // 6. 执行查询
             try {
-                queryAndAnalyze(fromStation, toStation, date);
+                queryAndAnalyze(fromStation, toStation, date, preference);
             } catch (Exception e) {
                 System.err.println("查询失败: " + e.getMessage());
                 e.printStackTrace();
             }
 
-            // 6. 是否继续
+            // 7. 是否继续
             System.out.println();
             System.out.print("是否继续查询？(y/n): ");
             String cont = scanner.nextLine().trim().toLowerCase();
@@ -87,9 +177,75 @@ public class App {
             }
         }
 
+        shutdown();
         System.out.println("感谢使用，祝您购票顺利！");
     }
 
+    /**
+     * 非交互模式：查询一次后退出，不限出行偏好
+     */
+    public void runOnce(String from, String to, String date) {
+        if (!init()) {
+            return;
+        }
+        Station fromStation = resolveStation(from);
+        Station toStation = resolveStation(to);
+        if (fromStation == null || toStation == null) {
+            System.err.println("未找到车站: " + (fromStation == null ? from : to));
+        } else {
+            try {
+                queryAndAnalyze(fromStation, toStation, date, new QueryPreference());
+            } catch (Exception e) {
+                System.err.println("查询失败: " + e.getMessage());
+            }
+        }
+        shutdown();
+    }
+
+    /**
+     * 初始化车站数据、12306会话和余票历史记录
+     */
+    private boolean init() {
+        try {
+            stationService.init();
+            ticketQueryService.init();
+        } catch (Exception e) {
+            System.err.println("初始化失败: " + e.getMessage());
+            System.err.println("请检查网络连接后重试。");
+            return false;
+        }
+
+        // 记录每次查询到的余票，用于分析放票规律
+        try {
+            availabilityLog = new AvailabilityLog();
+            ticketQueryService.addObserver(availabilityLog);
+        } catch (IOException e) {
+            System.err.println("余票历史记录不可用: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void shutdown() {
+        resultWriter.getRenderer().close();
+        if (availabilityLog != null) {
+            try {
+                availabilityLog.close();
+            } catch (IOException e) {
+                System.err.println("余票历史关闭失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按站名精确匹配，否则取模糊搜索的第一个结果
+     */
+    private Station resolveStation(String name) {
+        Station station = stationService.getByName(name);
+        if (station != null) return station;
+        List<Station> results = stationService.search(name);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
     /**
      * 输入并选择车站
      */
@@ -144,281 +300,296 @@ public class App {
         return inputStation(scanner, prompt);
     }
 
+    /**
+     * 输入出行偏好：出发时段和座席，直接回车表示不限
+     */
+    private QueryPreference inputPreference(Scanner scanner) {
+        QueryPreference preference = new QueryPreference();
+
+        System.out.print("出发时段（如 08:00-18:00，直接回车不限）: ");
+        String window = scanner.nextLine().trim();
+        if (!window.isEmpty()) {
+            String[] parts = window.split("-");
+            int after = TimeUtil.toMinutes(parts[0].trim());
+            int before = parts.length > 1 ? TimeUtil.toMinutes(parts[1].trim()) : -1;
+            if (after < 0) {
+                System.out.println("  时段格式无效，按不限处理");
+            } else {
+                preference.setDepartAfter(after);
+                preference.setDepartBefore(before);
+            }
+        }
+
+        System.out.print("座席偏好（如 二等座,硬卧，直接回车不限）: ");
+        String seats = scanner.nextLine().trim();
+        if (!seats.isEmpty()) {
+            Set<SeatClass> seatClasses = EnumSet.noneOf(SeatClass.class);
+            for (String label : seats.split("[,，\\s]+")) {
+                SeatClass seatClass = SeatClass.fromLabel(label);
+                if (seatClass != null) {
+                    seatClasses.add(seatClass);
+                } else {
+                    System.out.println("  未知座席: " + label);
+                }
+            }
+            preference.setSeatClasses(seatClasses);
+        }
+        return preference;
+    }
+
     /**
      * 核心逻辑：查询余票并分析"买长乘短"机会
      */
-    private void queryAndAnalyze(Station fromStation, Station toStation, String date) throws Exception {
+    private void queryAndAnalyze(Station fromStation, Station toStation, String date,
+                                 QueryPreference preference) throws Exception {
         // Step 1: 查询直达余票
-        System.out.println("【第1步】查询直达余票...");
+        console.println("【第1步】查询直达余票...");
         List<TrainInfo> directTrains = ticketQueryService.queryTickets(
                 fromStation.getCode(), toStation.getCode(), date);
 
         if (directTrains.isEmpty()) {
-            System.out.println("  未查询到从 " + fromStation.getName() + " 到 " + toStation.getName() + " 的车次。");
+            console.println("  未查询到从 " + fromStation.getName() + " 到 " + toStation.getName() + " 的车次。");
             return;
         }
 
-        System.out.println("  共找到 " + directTrains.size() + " 个车次");
+        console.println("  共找到 " + directTrains.size() + " 个车次");
 
         // 分类统计
         List<TrainInfo> hasTicketTrains = new ArrayList<>();
         List<TrainInfo> noTicketCanExtend = new ArrayList<>();
-        int noTicketTerminal = 0;
 
         for (TrainInfo train : directTrains) {
-            if (train.hasAvailableTicket()) {
+            if (train.hasAvailableTicket(preference.getSeatClasses())) {
                 hasTicketTrains.add(train);
             } else if (!train.getToStationCode().equals(train.getEndStationCode())) {
                 noTicketCanExtend.add(train);
-            } else {
-                noTicketTerminal++;
             }
         }
 
         // ===== 有票车次单独列出 =====
-        System.out.println();
         if (!hasTicketTrains.isEmpty()) {
-            System.out.println("==================== 有票车次 (" + hasTicketTrains.size() + " 个) ====================");
-            printTableHeader();
-            for (TrainInfo train : hasTicketTrains) {
-                printTrainRow(train);
-            }
+            resultWriter.trains("available", "有票车次 (" + hasTicketTrains.size() + " 个)", hasTicketTrains);
         } else {
-            System.out.println("==================== 无直达有票车次 ====================");
+            console.println();
+            console.println("==================== 无直达有票车次 ====================");
         }
 
         // ===== 无票车次概况 =====
-        System.out.println();
-        int noTicketCount = noTicketCanExtend.size() + noTicketTerminal;
-        System.out.println("==================== 无票车次 (" + noTicketCount + " 个) ====================");
-        printTableHeader();
+        List<TrainInfo> noTicketTrains = new ArrayList<>();
         for (TrainInfo train : directTrains) {
-            if (!train.hasAvailableTicket()) {
-                printTrainRow(train);
+            if (!train.hasAvailableTicket(preference.getSeatClasses())) {
+                noTicketTrains.add(train);
             }
         }
+        int noTicketCount = noTicketTrains.size();
+        resultWriter.trains("soldOut", "无票车次 (" + noTicketCount + " 个)", noTicketTrains);
 
-        System.out.println();
-        System.out.println("直达有票: " + hasTicketTrains.size() + " | 直达无票: " + noTicketCount
+        console.println();
+        console.println("直达有票: " + hasTicketTrains.size() + " | 直达无票: " + noTicketCount
                 + " | 可尝试买长: " + noTicketCanExtend.size());
 
         int hasTicketCount = hasTicketTrains.size();
         int canExtendCount = noTicketCanExtend.size();
 
+        List<BuyLongResult> buyLongResults = new ArrayList<>();
         if (canExtendCount == 0) {
-            System.out.println("所有无票车次均以目的地为终到站，无法使用买长乘短策略。");
-            printSummary(directTrains.size(), hasTicketCount, noTicketCount, 0);
-            return;
+            console.println("所有无票车次均以目的地为终到站，无法使用买长乘短策略。");
+        } else {
+            buyLongResults = analyzeBuyLong(fromStation, toStation, date, noTicketCanExtend, preference);
         }
 
-        // Step 2: 对可延伸的无票车次，分析"买长乘短"机会
-        System.out.println();
-        System.out.println("【第2步】分析买长乘短机会（共 " + canExtendCount + " 个车次需要查询）...");
-        System.out.println();
-
-        // 收集买长乘短机会
-        List<BuyLongResult> buyLongResults = new ArrayList<>();
-        int analyzed = 0;
-
+        // Step 3: 未找到买长机会的无票车次，再分析"买短乘长"（提前站购票 / 买短补票）
+        List<TrainInfo> remaining = new ArrayList<>();
         for (TrainInfo train : directTrains) {
-            if (train.hasAvailableTicket()) continue;
-            if (train.getToStationCode().equals(train.getEndStationCode())) continue;
-
-            analyzed++;
-            System.out.println("[" + analyzed + "/" + canExtendCount + "] "
-                    + train.getStationTrainCode()
-                    + " (" + train.getFromStationName() + "→" + train.getToStationName()
-                    + ", 终到: " + train.getEndStationName() + ")");
-
-            try {
-                List<TrainStop> route = trainRouteService.queryRoute(
-                        train.getTrainNo(),
-                        train.getStartStationCode(),
-                        train.getEndStationCode(),
-                        date);
-
-                if (route.isEmpty()) {
-                    System.out.println("    ↳ 未能获取经停站信息");
-                    continue;
-                }
-
-                List<TrainStop> stopsAfter = trainRouteService.getStopsAfter(
-                        route, toStation.getName(), train.getToStationCode());
-
-                if (stopsAfter.isEmpty()) {
-                    System.out.println("    ↳ 目的地之后无更多站点");
-                    continue;
+            if (train.hasAvailableTicket(preference.getSeatClasses())) continue;
+            boolean covered = false;
+            for (BuyLongResult r : buyLongResults) {
+                if (r.getOriginalTrain() == train) {
+                    covered = true;
+                    break;
                 }
+            }
+            if (!covered) remaining.add(train);
+        }
+        List<BuyShortResult> buyShortResults = buyLongResults.size() >= preference.getMaxResults()
+                ? new ArrayList<>()
+                : analyzeBuyShort(fromStation, toStation, date, remaining, preference);
 
-                System.out.println("    ↳ 目的地之后还有 " + stopsAfter.size() + " 个站，正在查询余票...");
-
-                boolean foundOpportunity = false;
-
-                // 先查终点站
-                TrainStop lastStop = stopsAfter.get(stopsAfter.size() - 1);
-                TrainInfo extResult = findExtendedTicket(fromStation, train, lastStop, date);
-                if (extResult != null) {
-                    buyLongResults.add(new BuyLongResult(train, extResult, lastStop.getStationName()));
-                    System.out.println("    ★ 买长乘短机会! "
-                            + fromStation.getName() + " → " + lastStop.getStationName()
-                            + " (" + train.getStationTrainCode() + "): "
-                            + extResult.getTicketSummary());
-                    foundOpportunity = true;
-                }
+        printSummary(directTrains.size(), hasTicketCount, noTicketCount, buyLongResults.size(), buyShortResults.size());
 
-                // 再查中间站（均匀取样，最多再查4个）
-                if (!foundOpportunity && stopsAfter.size() > 1) {
-                    int step = Math.max(1, stopsAfter.size() / 4);
-                    int checked = 0;
-                    for (int i = 0; i < stopsAfter.size() - 1 && checked < 4; i += step) {
-                        TrainStop extStop = stopsAfter.get(i);
-                        extResult = findExtendedTicket(fromStation, train, extStop, date);
-                        if (extResult != null) {
-                            buyLongResults.add(new BuyLongResult(train, extResult, extStop.getStationName()));
-                            System.out.println("    ★ 买长乘短机会! "
-                                    + fromStation.getName() + " → " + extStop.getStationName()
-                                    + " (" + train.getStationTrainCode() + "): "
-                                    + extResult.getTicketSummary());
-                            foundOpportunity = true;
-                            break;
-                        }
-                        checked++;
-                    }
-                }
+        if (hasTicketCount == 0 && buyLongResults.isEmpty() && buyShortResults.isEmpty()) {
+            searchTransfers(fromStation, toStation, date, directTrains, preference);
+        }
+    }
 
-                if (!foundOpportunity) {
-                    System.out.println("    ↳ 延伸站点也无余票");
+    /**
+     * 对可延伸的无票车次，分析"买长乘短"机会
+     */
+    private List<BuyLongResult> analyzeBuyLong(Station fromStation, Station toStation, String date,
+                                               List<TrainInfo> extendableTrains, QueryPreference preference)
+            throws InterruptedException {
+        console.println();
+        console.println("【第2步】分析买长乘短机会（共 " + extendableTrains.size() + " 个车次可尝试）...");
+        console.println();
+
+        // 分析在后台线程进行，每找到一个方案立即打印；机器可读格式下方案行也随找到随输出
+        boolean streaming = resultWriter.getRenderer().isMachineReadable();
+        if (streaming) {
+            resultWriter.beginBuyLong("买长乘短有票车次");
+        }
+        ConsoleAnalysisListener listener =
+                new ConsoleAnalysisListener(fromStation, console, streaming ? resultWriter : null);
+        List<BuyLongResult> buyLongResults;
+        try {
+            buyLongResults = buyLongAnalyzer.analyzeAsync(
+                    fromStation, toStation, date, extendableTrains, preference, listener).get();
+        } catch (ExecutionException e) {
+            listener.finish();
+            console.println("  买长乘短分析失败: " + e.getCause().getMessage());
+            return new ArrayList<>();
+        } finally {
+            if (streaming) {
+                resultWriter.endSection();
+            }
+        }
+        listener.finish();
+
+        // 方案已按所需座席筛选，最后只为找到的方案查询票价，按多付的钱排序
+        boolean ranked = AppConfig.current().isPriceLookup() && !buyLongResults.isEmpty();
+        if (ranked) {
+            console.println("  正在查询票价...");
+            ticketPriceService.rankByExtraCost(buyLongResults, preference.getSeatClasses(), date);
+            if (streaming) {
+                resultWriter.beginBuyLong("buyLongRanked", "买长乘短方案（按多付票价排序）");
+                for (BuyLongResult r : buyLongResults) {
+                    resultWriter.buyLong(r);
                 }
-
-            } catch (Exception e) {
-                System.out.println("    ↳ 查询失败: " + e.getMessage());
+                resultWriter.endSection();
             }
         }
 
         // ===== 买长乘短有票汇总 =====
-        if (!buyLongResults.isEmpty()) {
-            System.out.println();
-            System.out.println("============ 买长乘短有票车次 (" + buyLongResults.size() + " 个) ============");
-            System.out.println(String.format("%-8s %-8s %-8s %-10s %-6s %-6s %-6s %s",
-                    "车次", "出发站", "目的地", "购票到站", "出发", "到达", "历时", "余票"));
-            System.out.println("-".repeat(100));
+        if (!streaming && !buyLongResults.isEmpty()) {
+            resultWriter.beginBuyLong("买长乘短有票车次 (" + buyLongResults.size() + " 个"
+                    + (ranked ? "，按多付票价排序" : "") + ")");
             for (BuyLongResult r : buyLongResults) {
-                System.out.println(String.format("%-8s %-8s %-8s %-10s %-6s %-6s %-6s %s",
-                        r.originalTrain.getStationTrainCode(),
-                        r.originalTrain.getFromStationName(),
-                        r.originalTrain.getToStationName(),
-                        r.buyToStation,
-                        r.originalTrain.getStartTime(),
-                        r.originalTrain.getArriveTime(),
-                        r.originalTrain.getDuration(),
-                        r.extendedTrain.getTicketSummary()));
+                resultWriter.buyLong(r);
             }
+            resultWriter.endSection();
         }
 
-        printSummary(directTrains.size(), hasTicketCount, noTicketCount, buyLongResults.size());
+        return buyLongResults;
     }
 
     /**
-     * 查询延伸站点的余票，返回有票的 TrainInfo，无票返回 null
+     * 分析"买短乘长"机会：提前站购票上车，或买覆盖大部分行程的区段后车上补票
      */
-    private TrainInfo findExtendedTicket(Station fromStation, TrainInfo train, TrainStop extStop, String date) {
-        String extCode = extStop.getStationCode();
-        if (extCode == null || extCode.isEmpty()) {
-            Station extStation = stationService.getByName(extStop.getStationName());
-            if (extStation != null) {
-                extCode = extStation.getCode();
-            } else {
-                return null;
-            }
+    private List<BuyShortResult> analyzeBuyShort(Station fromStation, Station toStation, String date,
+                                                 List<TrainInfo> soldOutTrains, QueryPreference preference) {
+        if (soldOutTrains.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        try {
-            List<TrainInfo> extTickets = ticketQueryService.queryTickets(
-                    fromStation.getCode(), extCode, date);
+        console.println();
+        console.println("【第3步】分析买短乘长机会（共 " + soldOutTrains.size() + " 个车次）...");
+        List<BuyShortResult> results = buyShortAnalyzer.analyze(fromStation, toStation, date, soldOutTrains,
+                preference.getSeatClasses());
 
-            for (TrainInfo extTrain : extTickets) {
-                if (extTrain.getStationTrainCode().equals(train.getStationTrainCode())) {
-                    return extTrain.hasAvailableTicket() ? extTrain : null;
-                }
-            }
-        } catch (Exception e) {
-            // 查询失败，跳过
+        if (results.isEmpty()) {
+            console.println("  提前站购票和买短补票均无余票");
+            return results;
         }
-        return null;
+
+        resultWriter.buyShort("买短乘长有票车次 (" + results.size() + " 个)", results);
+        return results;
     }
 
     /**
-     * 买长乘短查询结果
+     * 直达和买长乘短都无票时，搜索一次中转方案
      */
-    private static class BuyLongResult {
-        final TrainInfo originalTrain;   // 原始车次（直达无票）
-        final TrainInfo extendedTrain;   // 延伸查询（有票）
-        final String buyToStation;       // 购票到站名
-
-        BuyLongResult(TrainInfo originalTrain, TrainInfo extendedTrain, String buyToStation) {
-            this.originalTrain = originalTrain;
-            this.extendedTrain = extendedTrain;
-            this.buyToStation = buyToStation;
+    private void searchTransfers(Station fromStation, Station toStation, String date, List<TrainInfo> directTrains,
+                                 QueryPreference preference) {
+        console.println();
+        console.println("【第4步】搜索中转方案...");
+        List<TransferItinerary> itineraries = transferSearchService.search(fromStation, toStation, date, directTrains,
+                preference.getSeatClasses());
+        if (itineraries.isEmpty()) {
+            console.println("  未找到可行的中转方案。");
+            return;
         }
-    }
 
-    private void printSummary(int total, int hasTicket, int noTicket, int buyLong) {
-        System.out.println();
-        System.out.println("========== 查询总结 ==========");
-        System.out.println("车次总数: " + total);
-        System.out.println("直达有票: " + hasTicket);
-        System.out.println("直达无票: " + noTicket);
-        System.out.println("买长乘短有票: " + buyLong);
-        System.out.println("==============================");
+        resultWriter.transfers("中转方案 (" + itineraries.size() + " 个)", itineraries, date);
     }
 
     /**
-     * 打印表格头
+     * 控制台输出：方案和提示信息逐行打印，交互终端下另有一行实时进度
      */
-    private void printTableHeader() {
-        System.out.println(String.format("%-8s %-8s %-8s %-8s %-6s %-6s %-6s %-6s %-6s %-6s %-6s %-6s",
-                "车次", "出发站", "到达站", "终到站", "出发", "到达", "历时", "商务", "一等", "二等", "硬卧", "硬座"));
-        System.out.println("-".repeat(100));
-    }
+    private static class ConsoleAnalysisListener implements AnalysisListener {
+        private final Station fromStation;
+        private final PrintStream console;
+
+        /** 不为 null 时每个方案同时写入结果输出 */
+        private final ResultWriter resultWriter;
+        private final boolean interactive = System.console() != null;
+        private boolean progressShown = false;
+
+        ConsoleAnalysisListener(Station fromStation, PrintStream console, ResultWriter resultWriter) {
+            this.fromStation = fromStation;
+            this.console = console;
+            this.resultWriter = resultWriter;
+        }
 
-    /**
-     * 打印一行车次信息
-     */
-    private void printTrainRow(TrainInfo train) {
-        String endMark = train.getToStationCode().equals(train.getEndStationCode()) ? "(终)" : train.getEndStationName();
-        System.out.println(String.format("%-8s %-8s %-8s %-8s %-6s %-6s %-6s %-6s %-6s %-6s %-6s %-6s",
-                train.getStationTrainCode(),
-                train.getFromStationName(),
-                train.getToStationName(),
-                endMark,
-                train.getStartTime(),
-                train.getArriveTime(),
-                train.getDuration(),
-                formatSeat(train.getBusinessSeat()),
-                formatSeat(train.getFirstClassSeat()),
-                formatSeat(train.getSecondClassSeat()),
-                formatSeat(train.getHardSleeper()),
-                formatSeat(train.getHardSeat())));
-    }
+        @Override
+        public synchronized void onResult(BuyLongResult result) {
+            clearProgress();
+            if (resultWriter != null) {
+                resultWriter.buyLong(result);
+            }
+            console.println("    ★ 买长乘短机会! "
+                    + fromStation.getName() + " → " + result.getBuyToStation()
+                    + " (" + result.getOriginalTrain().getStationTrainCode() + "): "
+                    + result.getExtendedTrain().getTicketSummary());
+        }
+
+        @Override
+        public synchronized void onMessage(String message) {
+            clearProgress();
+            console.println(message);
+        }
 
-    private String formatSeat(String seat) {
-        if (seat == null || seat.isEmpty() || "--".equals(seat)) return "--";
-        if ("无".equals(seat)) return "无";
-        if ("有".equals(seat)) return "有";
-        return seat;
+        @Override
+        public synchronized void onProgress(AnalysisProgress progress) {
+            if (!interactive) return;
+            long remaining = progress.getEstimatedRemainingMs();
+            console.print("\r  [已查 " + progress.getCompleted()
+                    + " | 排队 " + progress.getQueued()
+                    + " | 请求中 " + progress.getInFlight()
+                    + " | 已找到 " + progress.getFound()
+                    + " | 预计剩余 " + (remaining < 0 ? "--" : (remaining / 1000) + "秒") + "]");
+            progressShown = true;
+        }
+
+        synchronized void finish() {
+            clearProgress();
+        }
+
+        private void clearProgress() {
+            if (progressShown) {
+                console.print("\r" + " ".repeat(80) + "\r");
+                progressShown = false;
+            }
+        }
     }
 
-    /**
-     * 中文字符串右填充（考虑中文字符宽度）
-     */
-    private String padRight(String str, int width) {
-        if (str == null) str = "";
-        int chineseCount = 0;
-        for (char c : str.toCharArray()) {
-            if (c > 127) chineseCount++;
-        }
-        int padLen = width - str.length() - chineseCount;
-        if (padLen <= 0) return str;
-        return str + " ".repeat(padLen);
+    private void printSummary(int total, int hasTicket, int noTicket, int buyLong, int buyShort) {
+        console.println();
+        console.println("========== 查询总结 ==========");
+        console.println("车次总数: " + total);
+        console.println("直达有票: " + hasTicket);
+        console.println("直达无票: " + noTicket);
+        console.println("买长乘短有票: " + buyLong);
+        console.println("买短乘长有票: " + buyShort);
+        console.println("HTTP连接: " + HttpUtil.getPoolStats());
+        console.println("==============================");
     }
 }
@@ -0,0 +1,238 @@
+package com.ticket.bench;
+
+import com.ticket.model.BuyLongResult;
+import com.ticket.model.BuyShortResult;
+import com.ticket.model.QueryPreference;
+import com.ticket.model.Station;
+import com.ticket.model.TrainInfo;
+import com.ticket.service.AnalysisListener;
+import com.ticket.service.BuyLongAnalyzer;
+import com.ticket.service.BuyShortAnalyzer;
+import com.ticket.service.StationService;
+import com.ticket.service.TicketPriceService;
+import com.ticket.service.TicketQueryService;
+import com.ticket.service.TrainRouteService;
+import com.ticket.util.AppConfig;
+import com.ticket.util.ConfigLoader;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 买长乘短端到端基准：对进程内模拟的 12306 运行完整的查询分析流程（直达 → 买长乘短 → 票价排序 → 买短乘长），
+ * 报告请求数、耗时、缓存和请求合并省下的请求数，以及找到第一个买长/买短方案的时间，用于客观比较策略改动。
+ *
+ * 用法：java -cp ticket-query.jar com.ticket.bench.BuyLongBenchmark
+ *           [--trains 60] [--stops 20] [--sold-out 0.7] [--throttle 0.05] [--latency 20]
+ *           [--rounds 2] [--seed 42] [--profile 名称] [--set 配置项=值 ...]
+ *
+ * 默认不做请求间隔限速、限流等待缩短为 50/100/200 毫秒、不读写本地会话快照，可用 --set 覆盖。
+ */
+public class BuyLongBenchmark {
+
+    private static final List<String> BENCH_DEFAULTS = List.of(
+            "--set", "throttle.intervalMs=0",
+            "--set", "rateLimit.waitsMs=50,100,200",
+            "--set", "cache.sessionFile=");
+
+    public static void main(String[] args) throws Exception {
+        int trains = 60;
+        int stops = 20;
+        double soldOut = 0.7;
+        double throttle = 0.05;
+        long latency = 20;
+        int rounds = 2;
+        long seed = 42;
+
+        List<String> rest = new ArrayList<>(BENCH_DEFAULTS);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                boolean hasValue = i + 1 < args.length;
+                if ("--trains".equals(arg) && hasValue) {
+                    trains = Integer.parseInt(args[++i]);
+                } else if ("--stops".equals(arg) && hasValue) {
+                    stops = Integer.parseInt(args[++i]);
+                } else if ("--sold-out".equals(arg) && hasValue) {
+                    soldOut = Double.parseDouble(args[++i]);
+                } else if ("--throttle".equals(arg) && hasValue) {
+                    throttle = Double.parseDouble(args[++i]);
+                } else if ("--latency".equals(arg) && hasValue) {
+                    latency = Long.parseLong(args[++i]);
+                } else if ("--rounds".equals(arg) && hasValue) {
+                    rounds = Integer.parseInt(args[++i]);
+                } else if ("--seed".equals(arg) && hasValue) {
+                    seed = Long.parseLong(args[++i]);
+                } else {
+                    rest.add(arg);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("参数无效: " + e.getMessage());
+            return;
+        }
+
+        SimulatedRailway railway;
+        try {
+            railway = new SimulatedRailway(trains, stops, soldOut, throttle, latency, seed);
+            AppConfig config = ConfigLoader.load(rest);
+            if (!rest.isEmpty()) {
+                throw new IllegalArgumentException("未知参数: " + rest);
+            }
+            config.getHttp().setSimulator(railway);
+            AppConfig.apply(config);
+            System.out.println(config);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("配置加载失败: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("模拟线路: " + trains + " 个车次, " + stops + " 个车站, 售罄比例 " + soldOut
+                + ", 限流比例 " + throttle + ", 响应耗时 " + latency + "ms, 种子 " + seed);
+
+        new BuyLongBenchmark(railway).run(rounds);
+        System.exit(0);
+    }
+
+    private final SimulatedRailway railway;
+    private final StationService stationService = new StationService();
+    private final TicketQueryService ticketQueryService = new TicketQueryService(stationService);
+    private final TrainRouteService trainRouteService = new TrainRouteService();
+    private final TicketPriceService ticketPriceService = new TicketPriceService();
+    private final BuyLongAnalyzer buyLongAnalyzer =
+            new BuyLongAnalyzer(stationService, ticketQueryService, trainRouteService);
+    private final BuyShortAnalyzer buyShortAnalyzer =
+            new BuyShortAnalyzer(stationService, ticketQueryService, trainRouteService);
+
+    public BuyLongBenchmark(SimulatedRailway railway) {
+        this.railway = railway;
+        stationService.load(railway.getStations());
+    }
+
+    /**
+     * 连续运行若干轮相同的查询；第一轮为冷缓存，之后各轮体现缓存的效果
+     */
+    public void run(int rounds) throws Exception {
+        ticketQueryService.init();
+        String date = LocalDate.now().plusDays(3).toString();
+
+        System.out.println();
+        System.out.printf("%-4s %8s %8s %8s %8s %8s %8s %8s %8s %8s %10s %10s%n",
+                "轮次", "请求", "余票", "经停", "票价", "限流", "缓存命中", "合并", "直达有票", "方案", "耗时ms", "首个方案ms");
+        for (int round = 1; round <= rounds; round++) {
+            Snapshot before = snapshot();
+            RoundResult result = runRound(railway.getOrigin(), railway.getDestination(), date);
+            Snapshot after = snapshot();
+            System.out.printf("%-6d %8d %8d %8d %8d %8d %10d %8d %10d %8d %10d %10s%n",
+                    round,
+                    after.requests - before.requests,
+                    after.ticketRequests - before.ticketRequests,
+                    after.routeRequests - before.routeRequests,
+                    after.priceRequests - before.priceRequests,
+                    after.throttled - before.throttled,
+                    after.cacheHits - before.cacheHits,
+                    after.coalesced - before.coalesced,
+                    result.available,
+                    result.opportunities,
+                    result.wallMs,
+                    result.firstOpportunityMs >= 0 ? String.valueOf(result.firstOpportunityMs) : "-");
+        }
+
+        Snapshot total = snapshot();
+        System.out.println();
+        System.out.println("合计: 请求 " + total.requests + " 次（含会话初始化 " + railway.getOtherRequests() + " 次）"
+                + ", 缓存命中省下 " + total.cacheHits + " 次, 请求合并省下 " + total.coalesced + " 次"
+                + ", 被限流 " + total.throttled + " 次, 会话刷新 " + ticketQueryService.getSessionRefreshCount() + " 次");
+    }
+
+    /**
+     * 与交互模式相同的流程：直达查询 → 对可延伸的无票车次分析买长乘短并按票价排序 → 对剩余无票车次分析买短乘长
+     */
+    private RoundResult runRound(Station from, Station to, String date) throws Exception {
+        long start = System.nanoTime();
+        long[] firstResultAt = {-1};
+
+        QueryPreference preference = new QueryPreference();
+        List<TrainInfo> direct = ticketQueryService.queryTickets(from.getCode(), to.getCode(), date);
+        List<TrainInfo> extendable = new ArrayList<>();
+        List<TrainInfo> soldOut = new ArrayList<>();
+        int available = 0;
+        for (TrainInfo train : direct) {
+            if (train.hasAvailableTicket(preference.getSeatClasses())) {
+                available++;
+                continue;
+            }
+            soldOut.add(train);
+            if (!train.getToStationCode().equals(train.getEndStationCode())) {
+                extendable.add(train);
+            }
+        }
+
+        List<BuyLongResult> buyLong = buyLongAnalyzer.analyze(from, to, date, extendable, preference,
+                new AnalysisListener() {
+                    @Override
+                    public void onResult(BuyLongResult result) {
+                        if (firstResultAt[0] < 0) firstResultAt[0] = System.nanoTime();
+                    }
+                });
+
+        if (AppConfig.current().isPriceLookup()) {
+            ticketPriceService.rankByExtraCost(buyLong, preference.getSeatClasses(), date);
+        }
+
+        List<TrainInfo> remaining = new ArrayList<>();
+        for (TrainInfo train : soldOut) {
+            boolean covered = false;
+            for (BuyLongResult r : buyLong) {
+                if (r.getOriginalTrain() == train) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) remaining.add(train);
+        }
+        List<BuyShortResult> buyShort = buyLong.size() >= preference.getMaxResults()
+                ? new ArrayList<>()
+                : buyShortAnalyzer.analyze(from, to, date, remaining, preference.getSeatClasses());
+        if (firstResultAt[0] < 0 && !buyShort.isEmpty()) firstResultAt[0] = System.nanoTime();
+
+        long end = System.nanoTime();
+        RoundResult result = new RoundResult();
+        result.available = available;
+        result.opportunities = buyLong.size() + buyShort.size();
+        result.wallMs = (end - start) / 1_000_000;
+        result.firstOpportunityMs = firstResultAt[0] >= 0 ? (firstResultAt[0] - start) / 1_000_000 : -1;
+        return result;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = new Snapshot();
+        s.requests = railway.getTotalRequests();
+        s.ticketRequests = railway.getTicketRequests();
+        s.routeRequests = railway.getRouteRequests();
+        s.priceRequests = railway.getPriceRequests();
+        s.throttled = railway.getThrottledRequests();
+        s.cacheHits = ticketQueryService.getCacheHitCount() + trainRouteService.getCacheHitCount();
+        s.coalesced = ticketQueryService.getCoalescedCount() + trainRouteService.getCoalescedCount();
+        return s;
+    }
+
+    private static class Snapshot {
+        long requests;
+        long ticketRequests;
+        long routeRequests;
+        long priceRequests;
+        long throttled;
+        long cacheHits;
+        long coalesced;
+    }
+
+    private static class RoundResult {
+        int available;
+        int opportunities;
+        long wallMs;
+        long firstOpportunityMs;
+    }
+}
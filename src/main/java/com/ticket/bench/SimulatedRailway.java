@@ -0,0 +1,339 @@
+package com.ticket.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.ticket.model.Station;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内模拟的 12306：一条线路上的若干车站和车次，以拦截器的形式代替网络应答请求
+ *
+ * 所有车次从 0 号站始发，终到站随机分布在目的站及其之后；每个区段（车次 + 到站）是否售罄
+ * 由种子决定，同一配置多次运行结果一致，便于比较不同策略的请求量。
+ * 与 12306 的席位分配一致，买得越远越容易有票：同一车次到目的站之后的站，售罄概率随距离递减到一半，
+ * 且沿线单调（远的站售罄则近的站也售罄）。
+ * 支持模拟限流（按比例返回 HTML 页面）和固定的响应耗时。
+ */
+public class SimulatedRailway implements Interceptor {
+
+    private static final MediaType JSON = MediaType.parse("application/json;charset=UTF-8");
+    private static final MediaType HTML = MediaType.parse("text/html;charset=UTF-8");
+
+    /** 余票记录的字段数，与真实接口一致 */
+    private static final int FIELD_COUNT = 36;
+
+    private final int stopCount;
+    private final int destination;
+    private final double soldOutRatio;
+    private final double throttleRatio;
+    private final long latencyMs;
+    private final long seed;
+
+    private final String[] codes;
+    private final String[] names;
+
+    /** 每个车次的终到站下标 */
+    private final int[] endStops;
+
+    /** 模拟限流用的随机数，按请求顺序抽取 */
+    private final Random throttleRandom;
+
+    private final LongAdder ticketRequests = new LongAdder();
+    private final LongAdder routeRequests = new LongAdder();
+    private final LongAdder priceRequests = new LongAdder();
+    private final LongAdder otherRequests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param trainCount    车次数（1 到 999）
+     * @param stopCount     线路车站数（至少 3 个）
+     * @param soldOutRatio  每个区段售罄的概率
+     * @param throttleRatio 余票查询被限流（返回 HTML）的概率
+     * @param latencyMs     每个请求的响应耗时
+     * @param seed          随机种子
+     */
+    public SimulatedRailway(int trainCount, int stopCount, double soldOutRatio, double throttleRatio,
+                            long latencyMs, long seed) {
+        if (trainCount < 1 || trainCount > 999) {
+            throw new IllegalArgumentException("车次数须在 1 到 999 之间");
+        }
+        if (stopCount < 3) {
+            throw new IllegalArgumentException("车站数至少为 3");
+        }
+        this.stopCount = stopCount;
+        this.destination = stopCount / 2;
+        this.soldOutRatio = soldOutRatio;
+        this.throttleRatio = throttleRatio;
+        this.latencyMs = latencyMs;
+        this.seed = seed;
+        this.throttleRandom = new Random(seed);
+
+        codes = new String[stopCount];
+        names = new String[stopCount];
+        for (int i = 0; i < stopCount; i++) {
+            codes[i] = "Q" + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            names[i] = String.format("模拟%02d", i);
+        }
+
+        Random random = new Random(seed);
+        endStops = new int[trainCount];
+        for (int i = 0; i < trainCount; i++) {
+            endStops[i] = destination + random.nextInt(stopCount - destination);
+        }
+    }
+
+    /**
+     * 线路上的全部车站，载入 {@link com.ticket.service.StationService} 后即可按站名查找
+     */
+    public List<Station> getStations() {
+        List<Station> stations = new ArrayList<>(stopCount);
+        for (int i = 0; i < stopCount; i++) {
+            stations.add(new Station("mn" + i, names[i], codes[i], "moni" + i, "mn", String.valueOf(i)));
+        }
+        return stations;
+    }
+
+    public Station getOrigin() {
+        return getStations().get(0);
+    }
+
+    public Station getDestination() {
+        return getStations().get(destination);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        String path = url.encodedPath();
+
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("模拟请求被中断");
+            }
+        }
+
+        if (path.contains("/leftTicket/queryTicketPrice")) {
+            priceRequests.increment();
+            return respond(request, JSON, price(url.queryParameter("from_station_no"),
+                    url.queryParameter("to_station_no")));
+        }
+        if (path.contains("/leftTicket/query")) {
+            ticketRequests.increment();
+            boolean reject;
+            synchronized (throttleRandom) {
+                reject = throttleRandom.nextDouble() < throttleRatio;
+            }
+            if (reject) {
+                throttled.increment();
+                return respond(request, HTML, "<html><body>网络可能存在问题，请您重试一下！</body></html>");
+            }
+            return respond(request, JSON, leftTickets(url.queryParameter("leftTicketDTO.from_station"),
+                    url.queryParameter("leftTicketDTO.to_station"), url.queryParameter("leftTicketDTO.train_date")));
+        }
+        if (path.contains("/czxx/queryByTrainNo")) {
+            routeRequests.increment();
+            return respond(request, JSON, route(url.queryParameter("train_no")));
+        }
+        otherRequests.increment();
+        if (path.contains("/leftTicket/init")) {
+            return respond(request, HTML, "<script>var CLeftTicketUrl = 'leftTicket/queryZ';</script>");
+        }
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(404)
+                .message("Not Found")
+                .body(ResponseBody.create("", HTML))
+                .build();
+    }
+
+    private Response respond(Request request, MediaType type, String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, type))
+                .build();
+    }
+
+    /**
+     * 余票查询：列出经过 from、to 两站的所有车次
+     */
+    private String leftTickets(String fromCode, String toCode, String date) {
+        int from = indexOf(fromCode);
+        int to = indexOf(toCode);
+        JsonArray result = new JsonArray();
+        JsonObject map = new JsonObject();
+        if (from >= 0 && to > from) {
+            map.addProperty(codes[from], names[from]);
+            map.addProperty(codes[to], names[to]);
+            for (int train = 0; train < endStops.length; train++) {
+                if (endStops[train] < to) continue;
+                result.add(record(train, from, to, date));
+            }
+        }
+        JsonObject data = new JsonObject();
+        data.add("result", result);
+        data.add("map", map);
+        JsonObject root = new JsonObject();
+        root.addProperty("httpstatus", 200);
+        root.add("data", data);
+        root.addProperty("status", true);
+        return root.toString();
+    }
+
+    private String record(int train, int from, int to, String date) {
+        String[] fields = new String[FIELD_COUNT];
+        Arrays.fill(fields, "");
+        int depart = departMinutes(train, from);
+        int arrive = departMinutes(train, to);
+        boolean soldOut = isSoldOut(train, from, to, date);
+        fields[2] = trainNo(train);
+        fields[3] = "G" + (100 + train);
+        fields[4] = codes[0];
+        fields[5] = codes[endStops[train]];
+        fields[6] = codes[from];
+        fields[7] = codes[to];
+        fields[8] = formatTime(depart);
+        fields[9] = formatTime(arrive);
+        fields[10] = formatTime(arrive - depart);
+        fields[11] = soldOut ? "N" : "Y";
+        fields[16] = String.format("%02d", from + 1);
+        fields[17] = String.format("%02d", to + 1);
+        fields[30] = soldOut ? "无" : "有";
+        fields[31] = soldOut ? "无" : String.valueOf(1 + (train + to) % 9);
+        fields[34] = "O0M090";
+        fields[35] = "OM9";
+        return String.join("|", fields);
+    }
+
+    /**
+     * 经停站查询：始发站到终到站的全部车站
+     */
+    private String route(String trainNo) {
+        JsonArray stops = new JsonArray();
+        int train = trainIndex(trainNo);
+        if (train >= 0) {
+            int end = endStops[train];
+            for (int i = 0; i <= end; i++) {
+                JsonObject stop = new JsonObject();
+                stop.addProperty("station_no", String.format("%02d", i + 1));
+                stop.addProperty("station_name", names[i]);
+                stop.addProperty("station_telecode", codes[i]);
+                stop.addProperty("arrive_time", i == 0 ? "----" : formatTime(departMinutes(train, i) - 2));
+                stop.addProperty("start_time", i == end ? "----" : formatTime(departMinutes(train, i)));
+                stop.addProperty("stopover_time", i == 0 || i == end ? "----" : "2分钟");
+                stops.add(stop);
+            }
+        }
+        JsonObject data = new JsonObject();
+        data.add("data", stops);
+        JsonObject root = new JsonObject();
+        root.add("data", data);
+        root.addProperty("status", true);
+        return root.toString();
+    }
+
+    /**
+     * 票价查询：二等座每站 30 元，一等座和商务座按倍数计，无座与二等座同价
+     */
+    private String price(String fromNo, String toNo) {
+        JsonObject data = new JsonObject();
+        try {
+            int stops = Integer.parseInt(toNo) - Integer.parseInt(fromNo);
+            if (stops > 0) {
+                data.addProperty("O", "¥" + stops * 30 + ".0");
+                data.addProperty("M", "¥" + stops * 48 + ".0");
+                data.addProperty("A9", "¥" + stops * 96 + ".5");
+                data.addProperty("WZ", "¥" + stops * 30 + ".0");
+            }
+        } catch (NumberFormatException ignored) {
+            // 站序无效时返回空票价
+        }
+        JsonObject root = new JsonObject();
+        root.add("data", data);
+        root.addProperty("status", true);
+        return root.toString();
+    }
+
+    /**
+     * 区段是否售罄：由种子、车次、出发站和日期决定一个随机数，到站越远阈值越低，
+     * 同一区段多次查询结果相同，同一车次沿线单调
+     */
+    private boolean isSoldOut(int train, int from, int to, String date) {
+        long h = seed;
+        h = h * 31 + train;
+        h = h * 31 + from;
+        h = h * 31 + (date != null ? date.hashCode() : 0);
+        double beyond = to <= destination ? 0 : (double) (to - destination) / (stopCount - 1 - destination);
+        return new SplittableRandom(h).nextDouble() < soldOutRatio * (1 - beyond / 2);
+    }
+
+    private int departMinutes(int train, int stop) {
+        return 6 * 60 + train * 7 % (14 * 60) + stop * 30;
+    }
+
+    private String formatTime(int minutes) {
+        minutes = Math.floorMod(minutes, 24 * 60);
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+
+    private String trainNo(int train) {
+        return String.format("5l0000G%03d00", train);
+    }
+
+    private int trainIndex(String trainNo) {
+        if (trainNo == null || trainNo.length() != 12) return -1;
+        try {
+            int train = Integer.parseInt(trainNo.substring(7, 10));
+            return train < endStops.length ? train : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int indexOf(String code) {
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i].equals(code)) return i;
+        }
+        return -1;
+    }
+
+    /** 余票查询请求数（含被限流的） */
+    public long getTicketRequests() { return ticketRequests.sum(); }
+
+    /** 经停站查询请求数 */
+    public long getRouteRequests() { return routeRequests.sum(); }
+
+    /** 票价查询请求数 */
+    public long getPriceRequests() { return priceRequests.sum(); }
+
+    /** 其他请求数（会话初始化等） */
+    public long getOtherRequests() { return otherRequests.sum(); }
+
+    /** 被模拟限流的请求数 */
+    public long getThrottledRequests() { return throttled.sum(); }
+
+    public long getTotalRequests() {
+        return getTicketRequests() + getRouteRequests() + getPriceRequests() + getOtherRequests();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ticket.model;
+
+/**
+ * 分析进度快照
+ */
+public class AnalysisProgress {
+
+    /** 已完成的候选查询数 */
+    private final int completed;
+
+    /** 排队中的候选查询数 */
+    private final int queued;
+
+    /** 正在进行的 HTTP 请求数 */
+    private final int inFlight;
+
+    /** 已找到的方案数 */
+    private final int found;
+
+    /** 已用时间（毫秒） */
+    private final long elapsedMs;
+
+    public AnalysisProgress(int completed, int queued, int inFlight, int found, long elapsedMs) {
+        this.completed = completed;
+        this.queued = queued;
+        this.inFlight = inFlight;
+        this.found = found;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public int getCompleted() { return completed; }
+    public int getQueued() { return queued; }
+    public int getInFlight() { return inFlight; }
+    public int getFound() { return found; }
+    public long getElapsedMs() { return elapsedMs; }
+
+    /**
+     * 按已完成查询的平均耗时估算剩余时间（毫秒），尚无数据时返回 -1
+     */
+    public long getEstimatedRemainingMs() {
+        if (completed == 0) return -1;
+        return elapsedMs / completed * queued;
+    }
+}
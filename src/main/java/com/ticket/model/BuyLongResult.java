@@ -0,0 +1,65 @@
+package com.ticket.model;
+
+/**
+ * 买长乘短查询结果
+ */
+public class BuyLongResult {
+
+    /** 票价未知 */
+    public static final int UNKNOWN_PRICE = -1;
+
+    /** 原始车次（直达无票） */
+    private final TrainInfo originalTrain;
+
+    /** 延伸查询（有票） */
+    private final TrainInfo extendedTrain;
+
+    /** 购票到站名 */
+    private final String buyToStation;
+
+    /** 比较票价所用的座席（延伸区段有票的座席中最便宜的），未查询票价时为 null */
+    private SeatClass seatClass;
+
+    /** 直达区段票价（分） */
+    private int directPrice = UNKNOWN_PRICE;
+
+    /** 延伸区段票价（分） */
+    private int extendedPrice = UNKNOWN_PRICE;
+
+    public BuyLongResult(TrainInfo originalTrain, TrainInfo extendedTrain, String buyToStation) {
+        this.originalTrain = originalTrain;
+        this.extendedTrain = extendedTrain;
+        this.buyToStation = buyToStation;
+    }
+
+    public TrainInfo getOriginalTrain() { return originalTrain; }
+    public TrainInfo getExtendedTrain() { return extendedTrain; }
+    public String getBuyToStation() { return buyToStation; }
+
+    public SeatClass getSeatClass() { return seatClass; }
+    public int getDirectPrice() { return directPrice; }
+    public int getExtendedPrice() { return extendedPrice; }
+
+    /**
+     * 记录票价比较结果
+     */
+    public void setPrices(SeatClass seatClass, int directPrice, int extendedPrice) {
+        this.seatClass = seatClass;
+        this.directPrice = directPrice;
+        this.extendedPrice = extendedPrice;
+    }
+
+    /**
+     * 直达和延伸区段的票价是否都已知
+     */
+    public boolean hasPrices() {
+        return directPrice >= 0 && extendedPrice >= 0;
+    }
+
+    /**
+     * 买长比买直达多付的钱（分），仅在 {@link #hasPrices()} 时有意义
+     */
+    public int getExtraCost() {
+        return extendedPrice - directPrice;
+    }
+}
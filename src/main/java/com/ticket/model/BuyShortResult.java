@@ -0,0 +1,52 @@
+package com.ticket.model;
+
+/**
+ * "买短乘长"查询结果：所购车票区段与实际乘车区段不同，上车后补票或提前站购票
+ */
+public class BuyShortResult {
+
+    /** 购票方式 */
+    public enum Type {
+        /** 从出发站之前的站点购票，在出发站上车 */
+        UPSTREAM("提前站购票"),
+        /** 购买出发站到目的地之前某站的票，车上补票到目的地 */
+        PARTIAL("买短补票");
+
+        private final String label;
+
+        Type(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    /** 原始车次（直达无票） */
+    private final TrainInfo originalTrain;
+
+    /** 实际购票区段的查询结果（有票） */
+    private final TrainInfo ticketTrain;
+
+    /** 购票出发站名 */
+    private final String buyFromStation;
+
+    /** 购票到站名 */
+    private final String buyToStation;
+
+    private final Type type;
+
+    public BuyShortResult(TrainInfo originalTrain, TrainInfo ticketTrain,
+                          String buyFromStation, String buyToStation, Type type) {
+        this.originalTrain = originalTrain;
+        this.ticketTrain = ticketTrain;
+        this.buyFromStation = buyFromStation;
+        this.buyToStation = buyToStation;
+        this.type = type;
+    }
+
+    public TrainInfo getOriginalTrain() { return originalTrain; }
+    public TrainInfo getTicketTrain() { return ticketTrain; }
+    public String getBuyFromStation() { return buyFromStation; }
+    public String getBuyToStation() { return buyToStation; }
+    public Type getType() { return type; }
+}
@@ -0,0 +1,108 @@
+package com.ticket.model;
+
+import java.util.Collection;
+
+/**
+ * 紧凑的车次余票记录，用于缓存大量查询结果
+ *
+ * 车站以 {@code StationService} 分配的整数编号表示，时刻和历时以分钟数表示，
+ * 各座席余票编码为一个字节（见 {@link SeatClass#encode(String)}），不保留原始数据串。
+ * 单条记录约几十字节，而完整的 {@link TrainInfo} 约 1~2KB。
+ */
+public class CompactTrain {
+
+    /** 车次内部编号（已驻留，同一车次的多条记录共享同一字符串） */
+    private final String trainNo;
+
+    /** 车次代码（已驻留） */
+    private final String stationTrainCode;
+
+    /** 始发站、终到站、出发站、到达站编号 */
+    private final int startStation;
+    private final int endStation;
+    private final int fromStation;
+    private final int toStation;
+
+    /** 出发站、到达站在本车次中的站序（0 表示未知） */
+    private final byte fromStationNo;
+    private final byte toStationNo;
+
+    /** 座席类型编码（已驻留） */
+    private final String seatTypes;
+
+    /** 出发时间、到达时间、历时（分钟，-1 表示无法解析） */
+    private final short startTime;
+    private final short arriveTime;
+    private final short duration;
+
+    /** 按 {@link SeatClass} 序号排列的余票编码 */
+    private final byte[] seats;
+
+    private final boolean canBook;
+
+    public CompactTrain(String trainNo, String stationTrainCode,
+                        int startStation, int endStation, int fromStation, int toStation,
+                        byte fromStationNo, byte toStationNo, String seatTypes,
+                        short startTime, short arriveTime, short duration,
+                        byte[] seats, boolean canBook) {
+        this.trainNo = trainNo;
+        this.stationTrainCode = stationTrainCode;
+        this.startStation = startStation;
+        this.endStation = endStation;
+        this.fromStation = fromStation;
+        this.toStation = toStation;
+        this.fromStationNo = fromStationNo;
+        this.toStationNo = toStationNo;
+        this.seatTypes = seatTypes;
+        this.startTime = startTime;
+        this.arriveTime = arriveTime;
+        this.duration = duration;
+        this.seats = seats;
+        this.canBook = canBook;
+    }
+
+    public String getTrainNo() { return trainNo; }
+    public String getStationTrainCode() { return stationTrainCode; }
+    public int getStartStation() { return startStation; }
+    public int getEndStation() { return endStation; }
+    public int getFromStation() { return fromStation; }
+    public int getToStation() { return toStation; }
+    public byte getFromStationNo() { return fromStationNo; }
+    public byte getToStationNo() { return toStationNo; }
+    public String getSeatTypes() { return seatTypes; }
+    public short getStartTime() { return startTime; }
+    public short getArriveTime() { return arriveTime; }
+    public short getDuration() { return duration; }
+    public boolean isCanBook() { return canBook; }
+
+    /**
+     * 指定座席的余票编码
+     */
+    public byte getSeat(SeatClass seatClass) {
+        return seats[seatClass.ordinal()];
+    }
+
+    /**
+     * 是否有任何可用座位
+     */
+    public boolean hasAvailableTicket() {
+        for (byte seat : seats) {
+            if (SeatClass.isAvailable(seat)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 指定座席中是否有任意一种有票，座席集合为空时等同于 {@link #hasAvailableTicket()}
+     * 直接比较余票编码，不还原 {@link TrainInfo}
+     */
+    public boolean hasAvailableTicket(Collection<SeatClass> seatClasses) {
+        if (seatClasses == null || seatClasses.isEmpty()) {
+            return hasAvailableTicket();
+        }
+        for (SeatClass seatClass : seatClasses) {
+            if (SeatClass.isAvailable(seats[seatClass.ordinal()])) return true;
+        }
+        return false;
+    }
+}
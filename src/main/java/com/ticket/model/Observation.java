@@ -0,0 +1,63 @@
+package com.ticket.model;
+
+/**
+ * 一次余票观测：某次查询时某车次在某区段、某日期的各座席余票
+ */
+public class Observation {
+
+    /** 日志中的序号，单调递增 */
+    private final long seq;
+
+    /** 观测时间（毫秒） */
+    private final long timestamp;
+
+    private final String fromStationCode;
+    private final String toStationCode;
+
+    /** 出发日期 (yyyy-MM-dd) */
+    private final String date;
+
+    private final String stationTrainCode;
+
+    /** 按 {@link SeatClass} 序号排列的余票编码 */
+    private final byte[] seats;
+
+    public Observation(long seq, long timestamp, String fromStationCode, String toStationCode,
+                       String date, String stationTrainCode, byte[] seats) {
+        this.seq = seq;
+        this.timestamp = timestamp;
+        this.fromStationCode = fromStationCode;
+        this.toStationCode = toStationCode;
+        this.date = date;
+        this.stationTrainCode = stationTrainCode;
+        this.seats = seats;
+    }
+
+    public long getSeq() { return seq; }
+    public long getTimestamp() { return timestamp; }
+    public String getFromStationCode() { return fromStationCode; }
+    public String getToStationCode() { return toStationCode; }
+    public String getDate() { return date; }
+    public String getStationTrainCode() { return stationTrainCode; }
+
+    /**
+     * 指定座席的余票编码
+     */
+    public byte getSeat(SeatClass seatClass) {
+        return seats[seatClass.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(stationTrainCode).append(' ').append(fromStationCode).append("->").append(toStationCode)
+                .append(' ').append(date);
+        for (SeatClass seatClass : SeatClass.values()) {
+            byte seat = getSeat(seatClass);
+            if (seat != SeatClass.NOT_OFFERED) {
+                sb.append(' ').append(seatClass.getLabel()).append(':').append(SeatClass.decode(seat));
+            }
+        }
+        return sb.toString();
+    }
+}
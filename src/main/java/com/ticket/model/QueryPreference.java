@@ -0,0 +1,46 @@
+package com.ticket.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 用户出行偏好，用于对候选车次排序及判断结果是否满足需求
+ */
+public class QueryPreference {
+
+    /** 默认找到多少个满足偏好的方案后停止分析 */
+    public static final int DEFAULT_MAX_RESULTS = 5;
+
+    /** 最早出发时间（分钟，-1 表示不限） */
+    private int departAfter = -1;
+
+    /** 最晚出发时间（分钟，-1 表示不限） */
+    private int departBefore = -1;
+
+    /** 可接受的座席，为空表示任意座席 */
+    private Set<SeatClass> seatClasses = EnumSet.noneOf(SeatClass.class);
+
+    /** 找到多少个满足偏好的方案后停止 */
+    private int maxResults = DEFAULT_MAX_RESULTS;
+
+    public int getDepartAfter() { return departAfter; }
+    public void setDepartAfter(int departAfter) { this.departAfter = departAfter; }
+
+    public int getDepartBefore() { return departBefore; }
+    public void setDepartBefore(int departBefore) { this.departBefore = departBefore; }
+
+    public Set<SeatClass> getSeatClasses() { return seatClasses; }
+    public void setSeatClasses(Set<SeatClass> seatClasses) { this.seatClasses = seatClasses; }
+
+    public int getMaxResults() { return maxResults; }
+    public void setMaxResults(int maxResults) { this.maxResults = maxResults; }
+
+    /**
+     * 出发时间是否在偏好时段内（未设置时段时总是 true）
+     */
+    public boolean inDepartWindow(int departMinutes) {
+        if (departMinutes < 0) return true;
+        if (departAfter >= 0 && departMinutes < departAfter) return false;
+        return departBefore < 0 || departMinutes <= departBefore;
+    }
+}
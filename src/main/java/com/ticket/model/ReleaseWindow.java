@@ -0,0 +1,47 @@
+package com.ticket.model;
+
+/**
+ * 放票时段：历史上余票较常"重新出现"的连续小时段
+ */
+public class ReleaseWindow {
+
+    /** 起始小时（含） */
+    private final int startHour;
+
+    /** 结束小时（不含，可能为 24） */
+    private final int endHour;
+
+    /** 时段内观测到的放票次数（无票 → 有票） */
+    private final int releases;
+
+    /** 时段内的观测小时数（同一车次同一小时内的多次查询只计一次） */
+    private final int observations;
+
+    public ReleaseWindow(int startHour, int endHour, int releases, int observations) {
+        this.startHour = startHour;
+        this.endHour = endHour;
+        this.releases = releases;
+        this.observations = observations;
+    }
+
+    public int getStartHour() { return startHour; }
+    public int getEndHour() { return endHour; }
+    public int getReleases() { return releases; }
+    public int getObservations() { return observations; }
+
+    /**
+     * 平均每个观测小时发现的放票次数
+     */
+    public double getRate() {
+        return observations > 0 ? (double) releases / observations : 0;
+    }
+
+    public boolean contains(int hour) {
+        return hour >= startHour && hour < endHour;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%02d:00-%02d:00 放票%d次/观测%d小时", startHour, endHour, releases, observations);
+    }
+}
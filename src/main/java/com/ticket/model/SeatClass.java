@@ -0,0 +1,104 @@
+package com.ticket.model;
+
+/**
+ * 座席类别
+ */
+public enum SeatClass {
+    BUSINESS("商务座"),
+    FIRST_CLASS("一等座"),
+    SECOND_CLASS("二等座"),
+    ADVANCED_SOFT_SLEEPER("高级软卧"),
+    SOFT_SLEEPER("软卧"),
+    MOVE_SLEEPER("动卧"),
+    HARD_SLEEPER("硬卧"),
+    SOFT_SEAT("软座"),
+    HARD_SEAT("硬座"),
+    NO_SEAT("无座");
+
+    /** 余票编码："--" 该车次不设此座席 */
+    public static final byte NOT_OFFERED = -1;
+
+    /** 余票编码："有" 余票充足 */
+    public static final byte PLENTY = -2;
+
+    /** 余票编码："*" 未开售 */
+    public static final byte NOT_ON_SALE = -3;
+
+    /** 余票编码："无"，数字 1~127 表示具体张数（超过按127计） */
+    public static final byte SOLD_OUT = 0;
+
+    private final String label;
+
+    SeatClass(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    /**
+     * 读取车次在该座席上的余票字段（如 "有"、"无"、"12"、"--"）
+     */
+    public String valueOf(TrainInfo train) {
+        switch (this) {
+            case BUSINESS: return train.getBusinessSeat();
+            case FIRST_CLASS: return train.getFirstClassSeat();
+            case SECOND_CLASS: return train.getSecondClassSeat();
+            case ADVANCED_SOFT_SLEEPER: return train.getAdvancedSoftSleeper();
+            case SOFT_SLEEPER: return train.getSoftSleeper();
+            case MOVE_SLEEPER: return train.getMoveSleeper();
+            case HARD_SLEEPER: return train.getHardSleeper();
+            case SOFT_SEAT: return train.getSoftSeat();
+            case HARD_SEAT: return train.getHardSeat();
+            default: return train.getNoSeat();
+        }
+    }
+
+    /**
+     * 按中文名查找座席类别，找不到返回 null
+     */
+    public static SeatClass fromLabel(String label) {
+        for (SeatClass seatClass : values()) {
+            if (seatClass.label.equals(label)) {
+                return seatClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将余票字段编码为一个字节
+     */
+    public static byte encode(String value) {
+        if (value == null || value.isEmpty() || "--".equals(value)) return NOT_OFFERED;
+        if ("有".equals(value)) return PLENTY;
+        if ("无".equals(value)) return SOLD_OUT;
+        if ("*".equals(value)) return NOT_ON_SALE;
+        int count = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return NOT_OFFERED;
+            count = Math.min(count * 10 + (c - '0'), Byte.MAX_VALUE);
+        }
+        return (byte) count;
+    }
+
+    /**
+     * 将余票编码还原为 12306 的显示形式
+     */
+    public static String decode(byte code) {
+        switch (code) {
+            case NOT_OFFERED: return "--";
+            case PLENTY: return "有";
+            case NOT_ON_SALE: return "*";
+            case SOLD_OUT: return "无";
+            default: return code > 0 ? Integer.toString(code) : "--";
+        }
+    }
+
+    /**
+     * 编码后的余票是否可购买
+     */
+    public static boolean isAvailable(byte code) {
+        return code == PLENTY || code > 0;
+    }
+}
@@ -23,6 +23,9 @@ public class Station {
     /** 序号 */
     private String index;
 
+    /** 所属城市名（新版 station_name.js 提供，如 衡阳东 -> 衡阳），可能为 null */
+    private String cityName;
+
     public Station() {}
 
     public Station(String abbr, String name, String code, String pinyin, String initial, String index) {
@@ -52,6 +55,9 @@ public class Station {
     public String getIndex() { return index; }
     public void setIndex(String index) { this.index = index; }
 
+    public String getCityName() { return cityName; }
+    public void setCityName(String cityName) { this.cityName = cityName; }
+
     @Override
     public String toString() {
         return name + "(" + code + ")";
@@ -0,0 +1,38 @@
+package com.ticket.model;
+
+/**
+ * 买长乘短延伸站的查询顺序，每个车次找到第一个有票的延伸站即停止
+ */
+public enum StopOrder {
+    /** 由近及远：近的延伸站票价低，先查近的 */
+    NEAREST("nearest"),
+
+    /**
+     * 二分查找：先查终到站，终到站也无票则放弃该车次；有票再在中间折半，找最近的有票站。
+     * 假设余票沿线路单调（买得越远越容易有票），每个车次约 1 + log2(站数) 次请求
+     */
+    BINARY("binary"),
+
+    /** 早期的顺序：先终到站，再按顺序查取样的中间站 */
+    TERMINUS("terminus");
+
+    private final String name;
+
+    StopOrder(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * 按名称查找（不区分大小写），找不到返回 null
+     */
+    public static StopOrder fromName(String name) {
+        for (StopOrder order : values()) {
+            if (order.name.equalsIgnoreCase(name)) {
+                return order;
+            }
+        }
+        return null;
+    }
+}
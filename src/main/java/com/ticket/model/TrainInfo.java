@@ -1,5 +1,7 @@
 package com.ticket.model;
 
+import java.util.Collection;
+
 /**
  * 车次信息及余票情况
  */
@@ -35,6 +37,13 @@ public class TrainInfo {
     /** 到达站电报码 */
     private String toStationCode;
 
+    /** 出发站、到达站在本车次中的站序（如 "01"），查询票价时使用 */
+    private String fromStationNo;
+    private String toStationNo;
+
+    /** 车次设有的座席类型编码（如 "OM9"），查询票价时使用 */
+    private String seatTypes;
+
     /** 出发时间 */
     private String startTime;
 
@@ -110,6 +119,15 @@ public class TrainInfo {
     public String getToStationCode() { return toStationCode; }
     public void setToStationCode(String toStationCode) { this.toStationCode = toStationCode; }
 
+    public String getFromStationNo() { return fromStationNo; }
+    public void setFromStationNo(String fromStationNo) { this.fromStationNo = fromStationNo; }
+
+    public String getToStationNo() { return toStationNo; }
+    public void setToStationNo(String toStationNo) { this.toStationNo = toStationNo; }
+
+    public String getSeatTypes() { return seatTypes; }
+    public void setSeatTypes(String seatTypes) { this.seatTypes = seatTypes; }
+
     public String getStartTime() { return startTime; }
     public void setStartTime(String startTime) { this.startTime = startTime; }
 
@@ -181,6 +199,34 @@ public class TrainInfo {
                 || isAvailable(moveSleeper);
     }
 
+    /**
+     * 指定座席是否有票
+     */
+    public boolean isAvailable(SeatClass seatClass) {
+        return isAvailable(seatClass.valueOf(this));
+    }
+
+    /**
+     * 指定座席中是否有任意一种有票，座席集合为空时等同于 {@link #hasAvailableTicket()}
+     */
+    public boolean hasAvailableTicket(Collection<SeatClass> seatClasses) {
+        if (seatClasses == null || seatClasses.isEmpty()) {
+            return hasAvailableTicket();
+        }
+        for (SeatClass seatClass : seatClasses) {
+            if (isAvailable(seatClass)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 车次是否设有该座席（"--" 表示该车次没有此座席）
+     */
+    public boolean hasSeatClass(SeatClass seatClass) {
+        String value = seatClass.valueOf(this);
+        return value != null && !value.isEmpty() && !"--".equals(value);
+    }
+
     private boolean isAvailable(String seatInfo) {
         return seatInfo != null && !seatInfo.isEmpty()
                 && !"无".equals(seatInfo) && !"--".equals(seatInfo) && !"*".equals(seatInfo);
@@ -0,0 +1,47 @@
+package com.ticket.model;
+
+/**
+ * 一次中转的行程方案：第一程 出发站 -> 中转站，第二程 中转站 -> 目的地
+ */
+public class TransferItinerary {
+
+    /** 第一程车次（有票） */
+    private final TrainInfo firstLeg;
+
+    /** 第二程车次（有票） */
+    private final TrainInfo secondLeg;
+
+    /** 第二程出发日期 (yyyy-MM-dd)，跨天中转时与第一程不同 */
+    private final String secondLegDate;
+
+    /** 换乘等待时间（分钟） */
+    private final int connectMinutes;
+
+    /** 全程耗时（分钟，含换乘等待） */
+    private final int totalMinutes;
+
+    /** 是否同城异站换乘（如 衡阳 -> 衡阳东） */
+    private final boolean crossStation;
+
+    public TransferItinerary(TrainInfo firstLeg, TrainInfo secondLeg, String secondLegDate,
+                             int connectMinutes, int totalMinutes, boolean crossStation) {
+        this.firstLeg = firstLeg;
+        this.secondLeg = secondLeg;
+        this.secondLegDate = secondLegDate;
+        this.connectMinutes = connectMinutes;
+        this.totalMinutes = totalMinutes;
+        this.crossStation = crossStation;
+    }
+
+    public TrainInfo getFirstLeg() { return firstLeg; }
+    public TrainInfo getSecondLeg() { return secondLeg; }
+    public String getSecondLegDate() { return secondLegDate; }
+    public int getConnectMinutes() { return connectMinutes; }
+    public int getTotalMinutes() { return totalMinutes; }
+    public boolean isCrossStation() { return crossStation; }
+
+    /** 中转站名（第一程到达站） */
+    public String getHubName() {
+        return firstLeg.getToStationName();
+    }
+}
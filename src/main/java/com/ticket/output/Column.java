@@ -0,0 +1,23 @@
+package com.ticket.output;
+
+/**
+ * 输出列：JSON 字段名、表头和表格显示宽度
+ */
+public class Column {
+
+    private final String key;
+    private final String label;
+
+    /** 表格列宽（按显示宽度计，中文字符占 2） */
+    private final int width;
+
+    public Column(String key, String label, int width) {
+        this.key = key;
+        this.label = label;
+        this.width = width;
+    }
+
+    public String getKey() { return key; }
+    public String getLabel() { return label; }
+    public int getWidth() { return width; }
+}
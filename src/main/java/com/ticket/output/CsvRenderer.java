@@ -0,0 +1,53 @@
+package com.ticket.output;
+
+import java.io.PrintWriter;
+
+/**
+ * CSV 格式：每段输出一行表头，第一列为段名；含逗号、引号或换行的值加引号转义
+ */
+public class CsvRenderer extends Renderer {
+
+    public CsvRenderer(PrintWriter out) {
+        super(out);
+    }
+
+    @Override
+    protected void writeHeader(String title) {
+        out.print("section");
+        for (Column column : columns) {
+            out.print(',');
+            out.print(column.getKey());
+        }
+        out.println();
+    }
+
+    @Override
+    public void row(String... values) {
+        writeValue(section);
+        for (String value : values) {
+            out.print(',');
+            writeValue(value);
+        }
+        out.println();
+    }
+
+    private void writeValue(String value) {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.print(value);
+            return;
+        }
+        out.print('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.print('"');
+            out.print(c);
+        }
+        out.print('"');
+    }
+}
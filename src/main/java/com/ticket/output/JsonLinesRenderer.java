@@ -0,0 +1,65 @@
+package com.ticket.output;
+
+import java.io.PrintWriter;
+
+/**
+ * JSON Lines 格式：每行一个 JSON 对象，包含 section 字段和各列的值
+ * streaming 为 true 时（NDJSON 流式输出）每行写完立即刷新，下游程序可以边分析边处理
+ */
+public class JsonLinesRenderer extends Renderer {
+
+    private final boolean streaming;
+
+    public JsonLinesRenderer(PrintWriter out, boolean streaming) {
+        super(out);
+        this.streaming = streaming;
+    }
+
+    @Override
+    protected void writeHeader(String title) {
+        // 每行自带字段名，不输出表头
+    }
+
+    @Override
+    public void row(String... values) {
+        out.print("{\"section\":");
+        writeString(section);
+        for (int i = 0; i < values.length; i++) {
+            out.print(',');
+            writeString(columns[i].getKey());
+            out.print(':');
+            writeString(values[i]);
+        }
+        out.println('}');
+        if (streaming) {
+            out.flush();
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            out.print("null");
+            return;
+        }
+        out.print('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.print("\\\""); break;
+                case '\\': out.print("\\\\"); break;
+                case '\n': out.print("\\n"); break;
+                case '\r': out.print("\\r"); break;
+                case '\t': out.print("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.print("\\u00");
+                        out.print(Character.forDigit(c >> 4, 16));
+                        out.print(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.print(c);
+                    }
+            }
+        }
+        out.print('"');
+    }
+}
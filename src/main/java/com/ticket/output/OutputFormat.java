@@ -0,0 +1,53 @@
+package com.ticket.output;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 输出格式
+ */
+public enum OutputFormat {
+    TABLE("table"),
+    CSV("csv"),
+    JSONL("jsonl"),
+    NDJSON("ndjson");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+
+    OutputFormat(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * 在输出流上创建带缓冲的渲染器
+     */
+    public Renderer create(OutputStream stream) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE));
+        switch (this) {
+            case CSV: return new CsvRenderer(out);
+            case JSONL: return new JsonLinesRenderer(out, false);
+            case NDJSON: return new JsonLinesRenderer(out, true);
+            default: return new TableRenderer(out);
+        }
+    }
+
+    /**
+     * 按名称查找输出格式（不区分大小写），找不到返回 null
+     */
+    public static OutputFormat fromName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.name.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ticket.output;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+
+/**
+ * 结果输出格式 - 输出分为若干段（直达车次、买长乘短方案等），每段有固定的列
+ * 行数据直接写入缓冲的 Writer，不经过 String.format 或中间字符串拼接
+ */
+public abstract class Renderer implements Closeable {
+
+    protected final PrintWriter out;
+    protected String section;
+    protected Column[] columns;
+
+    protected Renderer(PrintWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * 开始新的一段输出
+     *
+     * @param section 段名（机器可读格式中作为 section 字段）
+     * @param title   段标题（表格格式中显示）
+     */
+    public void beginSection(String section, String title, Column... columns) {
+        this.section = section;
+        this.columns = columns;
+        writeHeader(title);
+    }
+
+    /**
+     * 输出一行，values 与 beginSection 中的列一一对应
+     */
+    public abstract void row(String... values);
+
+    /**
+     * 结束当前段并刷新输出
+     */
+    public void endSection() {
+        out.flush();
+    }
+
+    /**
+     * 是否为机器可读格式：提示信息应改写到标准错误，分析结果应随找到随输出
+     */
+    public boolean isMachineReadable() {
+        return true;
+    }
+
+    protected abstract void writeHeader(String title);
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
@@ -0,0 +1,196 @@
+package com.ticket.output;
+
+import com.ticket.model.BuyLongResult;
+import com.ticket.model.BuyShortResult;
+import com.ticket.model.TrainInfo;
+import com.ticket.model.TransferItinerary;
+import com.ticket.util.TimeUtil;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 将查询和分析结果按段写入 {@link Renderer}，各种输出格式共用同一套列定义
+ */
+public class ResultWriter {
+
+    private static final Column[] TRAIN_COLUMNS = {
+            new Column("train", "车次", 8),
+            new Column("from", "出发站", 10),
+            new Column("to", "到达站", 10),
+            new Column("end", "终到站", 10),
+            new Column("depart", "出发", 6),
+            new Column("arrive", "到达", 6),
+            new Column("duration", "历时", 6),
+            new Column("business", "商务", 6),
+            new Column("first", "一等", 6),
+            new Column("second", "二等", 6),
+            new Column("hardSleeper", "硬卧", 6),
+            new Column("hardSeat", "硬座", 6),
+    };
+
+    private static final Column[] BUY_LONG_COLUMNS = {
+            new Column("train", "车次", 8),
+            new Column("from", "出发站", 10),
+            new Column("to", "目的地", 10),
+            new Column("buyTo", "购票到站", 10),
+            new Column("depart", "出发", 6),
+            new Column("arrive", "到达", 6),
+            new Column("duration", "历时", 6),
+            new Column("seat", "座席", 8),
+            new Column("extra", "多付", 8),
+            new Column("tickets", "余票", 0),
+    };
+
+    private static final Column[] BUY_SHORT_COLUMNS = {
+            new Column("train", "车次", 8),
+            new Column("buyFrom", "购票出发", 10),
+            new Column("buyTo", "购票到站", 10),
+            new Column("depart", "出发", 6),
+            new Column("arrive", "到达", 6),
+            new Column("duration", "历时", 6),
+            new Column("type", "方式", 12),
+            new Column("tickets", "余票", 0),
+    };
+
+    private static final Column[] TRANSFER_COLUMNS = {
+            new Column("firstTrain", "第一程", 8),
+            new Column("hub", "中转站", 10),
+            new Column("depart", "出发", 6),
+            new Column("arrive", "到达", 6),
+            new Column("secondTrain", "第二程", 8),
+            new Column("secondDepart", "出发", 12),
+            new Column("secondArrive", "到达", 6),
+            new Column("connect", "换乘", 10),
+            new Column("total", "全程", 0),
+    };
+
+    private final Renderer renderer;
+
+    public ResultWriter(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * 输出一组直达车次
+     */
+    public void trains(String section, String title, List<TrainInfo> trains) {
+        renderer.beginSection(section, title, TRAIN_COLUMNS);
+        for (TrainInfo train : trains) {
+            String end = train.getEndStationName();
+            if (!renderer.isMachineReadable() && train.getToStationCode().equals(train.getEndStationCode())) {
+                end = "(终)";
+            }
+            renderer.row(
+                    train.getStationTrainCode(),
+                    train.getFromStationName(),
+                    train.getToStationName(),
+                    end,
+                    train.getStartTime(),
+                    train.getArriveTime(),
+                    train.getDuration(),
+                    formatSeat(train.getBusinessSeat()),
+                    formatSeat(train.getFirstClassSeat()),
+                    formatSeat(train.getSecondClassSeat()),
+                    formatSeat(train.getHardSleeper()),
+                    formatSeat(train.getHardSeat()));
+        }
+        renderer.endSection();
+    }
+
+    /**
+     * 开始输出买长乘短方案，之后逐个调用 {@link #buyLong(BuyLongResult)}
+     */
+    public void beginBuyLong(String title) {
+        beginBuyLong("buyLong", title);
+    }
+
+    /**
+     * 开始输出一段买长乘短方案（如按票价排序后的结果）
+     */
+    public void beginBuyLong(String section, String title) {
+        renderer.beginSection(section, title, BUY_LONG_COLUMNS);
+    }
+
+    public void buyLong(BuyLongResult result) {
+        TrainInfo train = result.getOriginalTrain();
+        renderer.row(
+                train.getStationTrainCode(),
+                train.getFromStationName(),
+                train.getToStationName(),
+                result.getBuyToStation(),
+                train.getStartTime(),
+                train.getArriveTime(),
+                train.getDuration(),
+                result.getSeatClass() != null ? result.getSeatClass().getLabel() : "--",
+                result.hasPrices() ? formatPrice(result.getExtraCost()) : "--",
+                result.getExtendedTrain().getTicketSummary());
+    }
+
+    public void buyShort(String title, List<BuyShortResult> results) {
+        renderer.beginSection("buyShort", title, BUY_SHORT_COLUMNS);
+        for (BuyShortResult result : results) {
+            TrainInfo train = result.getOriginalTrain();
+            renderer.row(
+                    train.getStationTrainCode(),
+                    result.getBuyFromStation(),
+                    result.getBuyToStation(),
+                    train.getStartTime(),
+                    train.getArriveTime(),
+                    train.getDuration(),
+                    result.getType().getLabel(),
+                    result.getTicketTrain().getTicketSummary());
+        }
+        renderer.endSection();
+    }
+
+    /**
+     * 输出中转方案
+     *
+     * @param date 第一程出发日期，第二程在次日出发的加注"(次日)"
+     */
+    public void transfers(String title, List<TransferItinerary> itineraries, String date) {
+        renderer.beginSection("transfer", title, TRANSFER_COLUMNS);
+        for (TransferItinerary it : itineraries) {
+            TrainInfo first = it.getFirstLeg();
+            TrainInfo second = it.getSecondLeg();
+            String hub = it.isCrossStation()
+                    ? first.getToStationName() + "→" + second.getFromStationName()
+                    : it.getHubName();
+            String secondStart = it.getSecondLegDate().equals(date)
+                    ? second.getStartTime() : second.getStartTime() + "(次日)";
+            renderer.row(
+                    first.getStationTrainCode(),
+                    hub,
+                    first.getStartTime(),
+                    first.getArriveTime(),
+                    second.getStationTrainCode(),
+                    secondStart,
+                    second.getArriveTime(),
+                    it.getConnectMinutes() + "分钟",
+                    TimeUtil.formatDuration(it.getTotalMinutes()));
+        }
+        renderer.endSection();
+    }
+
+    public void endSection() {
+        renderer.endSection();
+    }
+
+    /**
+     * 分转为 "¥12.5" 形式
+     */
+    private String formatPrice(int fen) {
+        String yuan = BigDecimal.valueOf(Math.abs(fen), 2).stripTrailingZeros().toPlainString();
+        return (fen < 0 ? "-¥" : "¥") + yuan;
+    }
+
+    private String formatSeat(String seat) {
+        if (seat == null || seat.isEmpty()) return "--";
+        return seat;
+    }
+}
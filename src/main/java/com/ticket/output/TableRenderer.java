@@ -0,0 +1,63 @@
+package com.ticket.output;
+
+import java.io.PrintWriter;
+
+/**
+ * 表格格式：按显示宽度对齐的文本表格，供人阅读
+ */
+public class TableRenderer extends Renderer {
+
+    private static final int RULE_WIDTH = 100;
+
+    public TableRenderer(PrintWriter out) {
+        super(out);
+    }
+
+    @Override
+    protected void writeHeader(String title) {
+        out.println();
+        out.print("============ ");
+        out.print(title);
+        out.println(" ============");
+        String[] labels = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            labels[i] = columns[i].getLabel();
+        }
+        row(labels);
+        for (int i = 0; i < RULE_WIDTH; i++) {
+            out.print('-');
+        }
+        out.println();
+    }
+
+    @Override
+    public void row(String... values) {
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i] != null ? values[i] : "";
+            out.print(value);
+            if (i < values.length - 1) {
+                pad(value, columns[i].getWidth());
+                out.print(' ');
+            }
+        }
+        out.println();
+    }
+
+    @Override
+    public boolean isMachineReadable() {
+        return false;
+    }
+
+    /**
+     * 中文字符串右填充（考虑中文字符宽度）
+     */
+    private void pad(String str, int width) {
+        int chineseCount = 0;
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) > 127) chineseCount++;
+        }
+        for (int padLen = width - str.length() - chineseCount; padLen > 0; padLen--) {
+            out.print(' ');
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.ticket.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.ticket.model.BuyLongResult;
+import com.ticket.model.QueryPreference;
+import com.ticket.model.SeatClass;
+import com.ticket.model.Station;
+import com.ticket.model.TrainInfo;
+import com.ticket.service.BuyLongAnalyzer;
+import com.ticket.service.HotRoutePrefetcher;
+import com.ticket.service.ReleasePredictor;
+import com.ticket.service.StationService;
+import com.ticket.service.TicketPriceService;
+import com.ticket.service.TicketQueryService;
+import com.ticket.service.TrainRouteService;
+import com.ticket.store.AvailabilityLog;
+import com.ticket.store.SnapshotStore;
+import com.ticket.util.AppConfig;
+import com.ticket.util.HttpUtil;
+import com.ticket.util.SingleFlight;
+import com.ticket.util.TimeUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * 常驻查询服务 - 在本机提供 HTTP/JSON 接口，所有客户端共用一份车站数据、
+ * 一个12306会话、一份余票/经停站缓存和同一个限速器，相同的并发请求只向12306发一次；
+ * 空闲时预取常查线路未来几天的余票和经停站（{@link HotRoutePrefetcher}）
+ *
+ * <pre>
+ * GET /api/stations?keyword=衡阳
+ * GET /api/tickets?from=深圳&amp;to=衡阳&amp;date=2026-02-10
+ * GET /api/route?trainNo=5l0000G10100&amp;from=IOQ&amp;to=HYQ&amp;date=2026-02-10
+ * GET /api/buylong?from=深圳&amp;to=衡阳&amp;date=2026-02-10&amp;seats=二等座&amp;depart=08:00-18:00&amp;max=5
+ * GET /api/history?from=深圳&amp;to=衡阳&amp;date=2026-02-10&amp;seat=二等座&amp;since=08:00
+ * GET /api/release?from=深圳&amp;to=衡阳&amp;train=G1001
+ * GET /api/stats
+ * </pre>
+ */
+public class QueryServer {
+
+    public static final int DEFAULT_PORT = 8306;
+
+    /** 后台检查车站数据更新的间隔（小时） */
+    private static final long STATION_REFRESH_HOURS = 24;
+
+    /** 处理请求的线程数 */
+    private static final int WORKER_THREADS = 8;
+
+    private final int port;
+    private final Gson gson = new Gson();
+    private final StationService stationService = new StationService();
+    private final TicketQueryService ticketQueryService = new TicketQueryService(stationService);
+    private final TrainRouteService trainRouteService = new TrainRouteService();
+    private final TicketPriceService ticketPriceService = new TicketPriceService();
+    private final BuyLongAnalyzer buyLongAnalyzer =
+            new BuyLongAnalyzer(stationService, ticketQueryService, trainRouteService);
+    private final HotRoutePrefetcher prefetcher = new HotRoutePrefetcher(ticketQueryService, trainRouteService);
+    private final SnapshotStore snapshotStore = new SnapshotStore();
+    private AvailabilityLog availabilityLog;
+    private ReleasePredictor releasePredictor;
+
+    /** 按请求路径和参数合并相同的并发请求 */
+    private final SingleFlight<String, Object> requests = new SingleFlight<>();
+
+    public QueryServer(int port) {
+        this.port = port;
+        ticketQueryService.addObserver(snapshotStore);
+    }
+
+    /**
+     * 初始化车站数据和12306会话，然后开始监听（仅绑定本机地址）
+     */
+    public void start() throws IOException {
+        stationService.init();
+        stationService.startBackgroundRefresh(STATION_REFRESH_HOURS);
+        ticketQueryService.init();
+
+        availabilityLog = new AvailabilityLog();
+        ticketQueryService.addObserver(availabilityLog);
+        releasePredictor = new ReleasePredictor(availabilityLog);
+        prefetcher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            prefetcher.stop();
+            try {
+                availabilityLog.close();
+            } catch (IOException e) {
+                System.err.println("余票历史关闭失败: " + e.getMessage());
+            }
+        }));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/api/stations", exchange -> handle(exchange, this::stations));
+        server.createContext("/api/tickets", exchange -> handle(exchange, this::tickets));
+        server.createContext("/api/route", exchange -> handle(exchange, this::route));
+        server.createContext("/api/buylong", exchange -> handle(exchange, this::buyLong));
+        server.createContext("/api/history", exchange -> handle(exchange, this::history));
+        server.createContext("/api/release", exchange -> handle(exchange, this::release));
+        server.createContext("/api/stats", exchange -> handle(exchange, params -> stats()));
+        server.setExecutor(Executors.newFixedThreadPool(WORKER_THREADS));
+        server.start();
+        System.out.println("查询服务已启动: http://127.0.0.1:" + port + "/api/");
+    }
+
+    private Object stations(Map<String, String> params) {
+        return stationService.search(required(params, "keyword"));
+    }
+
+    private Object tickets(Map<String, String> params) throws Exception {
+        Station from = station(required(params, "from"));
+        Station to = station(required(params, "to"));
+        prefetcher.recordSearch(from.getCode(), to.getCode());
+        return ticketQueryService.queryTickets(from.getCode(), to.getCode(), date(params));
+    }
+
+    private Object route(Map<String, String> params) throws Exception {
+        String trainNo = required(params, "trainNo");
+        if (!trainNo.chars().allMatch(c -> c < 128 && Character.isLetterOrDigit(c))) {
+            throw new IllegalArgumentException("车次编号格式错误: " + trainNo);
+        }
+        return trainRouteService.queryRoute(trainNo,
+                station(required(params, "from")).getCode(),
+                station(required(params, "to")).getCode(),
+                date(params));
+    }
+
+    private Object buyLong(Map<String, String> params) throws Exception {
+        Station from = station(required(params, "from"));
+        Station to = station(required(params, "to"));
+        String date = date(params);
+        prefetcher.recordSearch(from.getCode(), to.getCode());
+        QueryPreference preference = preference(params);
+
+        // 只有商务座、无座等非所需座席有票的车次同样需要买长
+        List<TrainInfo> extendable = ticketQueryService.queryTickets(from.getCode(), to.getCode(), date).stream()
+                .filter(t -> !t.hasAvailableTicket(preference.getSeatClasses()))
+                .filter(t -> !t.getToStationCode().equals(t.getEndStationCode()))
+                .collect(Collectors.toList());
+        List<BuyLongResult> results = buyLongAnalyzer.analyze(from, to, date, extendable, preference, result -> {});
+        if (AppConfig.current().isPriceLookup()) {
+            ticketPriceService.rankByExtraCost(results, preference.getSeatClasses(), date);
+        }
+        return results;
+    }
+
+    /**
+     * 今天（或 since 时刻之后）的快照中出现过该座席余票的车次
+     */
+    private Object history(Map<String, String> params) {
+        Station from = station(required(params, "from"));
+        Station to = station(required(params, "to"));
+        String date = required(params, "date");
+        SeatClass seatClass = SeatClass.fromLabel(required(params, "seat"));
+        if (seatClass == null) {
+            throw new IllegalArgumentException("未知座席: " + params.get("seat"));
+        }
+        long since = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String sinceParam = params.get("since");
+        if (sinceParam != null && !sinceParam.isEmpty()) {
+            int minutes = TimeUtil.toMinutes(sinceParam);
+            if (minutes < 0) {
+                throw new IllegalArgumentException("时间格式错误: " + sinceParam);
+            }
+            since += minutes * 60_000L;
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("snapshots", snapshotStore.getSnapshotCount(from.getCode(), to.getCode(), date));
+        result.put("trains", snapshotStore.trainsWithSeat(from.getCode(), to.getCode(), date,
+                seatClass, since, Long.MAX_VALUE));
+        return result;
+    }
+
+    /**
+     * 车次的放票时段预测和建议轮询间隔
+     */
+    private Object release(Map<String, String> params) throws Exception {
+        Station from = station(required(params, "from"));
+        Station to = station(required(params, "to"));
+        String train = required(params, "train");
+        releasePredictor.update();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("windows", releasePredictor.predict(from.getCode(), to.getCode(), train));
+        result.put("typicalDaysBefore", releasePredictor.typicalDaysBefore(from.getCode(), to.getCode(), train));
+        result.put("pollIntervalMs", releasePredictor.suggestPollIntervalMs(from.getCode(), to.getCode(), train,
+                System.currentTimeMillis()));
+        return result;
+    }
+
+    private Object stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pool", HttpUtil.getPoolStats());
+        stats.put("encodings", HttpUtil.getEncodingCounts());
+        stats.put("coalescing", requests.inFlightCount());
+        stats.put("coalescedApiRequests", requests.getSharedCount());
+        stats.put("coalescedTicketQueries", ticketQueryService.getCoalescedCount());
+        stats.put("ticketRequests", ticketQueryService.getTotalRequests());
+        stats.put("rateLimited", ticketQueryService.getRateLimitCount());
+        stats.put("sessionRefreshes", ticketQueryService.getSessionRefreshCount());
+        stats.put("coalescedRouteQueries", trainRouteService.getCoalescedCount());
+        stats.put("prefetchedTickets", prefetcher.getTicketPrefetchCount());
+        stats.put("prefetchedRoutes", prefetcher.getRoutePrefetchCount());
+        stats.put("hotRoutes", prefetcher.getHotRoutes(AppConfig.current().getPrefetchRoutes()));
+        stats.put("snapshotRows", snapshotStore.getRowCount());
+        stats.put("historyRecords", availabilityLog.getWrittenCount());
+        stats.put("historyDropped", availabilityLog.getDroppedCount());
+        return stats;
+    }
+
+    private QueryPreference preference(Map<String, String> params) {
+        QueryPreference preference = new QueryPreference();
+        String depart = params.get("depart");
+        if (depart != null && !depart.isEmpty()) {
+            String[] parts = depart.split("-");
+            preference.setDepartAfter(TimeUtil.toMinutes(parts[0].trim()));
+            if (parts.length > 1) {
+                preference.setDepartBefore(TimeUtil.toMinutes(parts[1].trim()));
+            }
+        }
+        String seats = params.get("seats");
+        if (seats != null && !seats.isEmpty()) {
+            Set<SeatClass> seatClasses = EnumSet.noneOf(SeatClass.class);
+            for (String label : seats.split(",")) {
+                SeatClass seatClass = SeatClass.fromLabel(label.trim());
+                if (seatClass == null) {
+                    throw new IllegalArgumentException("未知座席: " + label);
+                }
+                seatClasses.add(seatClass);
+            }
+            preference.setSeatClasses(seatClasses);
+        }
+        String max = params.get("max");
+        if (max != null && !max.isEmpty()) {
+            preference.setMaxResults(Integer.parseInt(max));
+        }
+        return preference;
+    }
+
+    /**
+     * 按中文名或电报码查找车站
+     */
+    private Station station(String nameOrCode) {
+        Station station = stationService.getByName(nameOrCode);
+        if (station == null) {
+            station = stationService.getByCode(nameOrCode);
+        }
+        if (station == null) {
+            throw new IllegalArgumentException("未知车站: " + nameOrCode);
+        }
+        return station;
+    }
+
+    /**
+     * 出发日期参数：必须是 yyyy-MM-dd 格式且不早于今天（会原样拼进 12306 的请求地址）
+     */
+    private String date(Map<String, String> params) {
+        String value = required(params, "date");
+        LocalDate date;
+        try {
+            date = LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误（应为 yyyy-MM-dd）: " + value);
+        }
+        if (date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("日期已过: " + value);
+        }
+        return date.toString();
+    }
+
+    private String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("缺少参数: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * 统一处理：解析参数、合并相同请求、输出 JSON
+     */
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        JsonObject body = new JsonObject();
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new IllegalArgumentException("仅支持 GET 请求");
+            }
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            Map<String, String> params = parseQuery(rawQuery);
+            String key = exchange.getRequestURI().getPath() + "?" + (rawQuery != null ? rawQuery : "");
+            Object data = requests.execute(key, () -> handler.handle(params));
+            body.addProperty("ok", true);
+            body.add("data", gson.toJsonTree(data));
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body.addProperty("ok", false);
+            body.addProperty("error", e.getMessage());
+        } catch (Exception e) {
+            status = 500;
+            body.addProperty("ok", false);
+            body.addProperty("error", e.getMessage());
+        }
+
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * 接口处理函数
+     */
+    private interface Handler {
+        Object handle(Map<String, String> params) throws Exception;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ticket.service;
+
+import com.ticket.model.AnalysisProgress;
+import com.ticket.model.BuyLongResult;
+
+/**
+ * 分析过程回调 - 结果一经找到立即推送，无需等待整个分析结束
+ * 回调在分析线程上执行，实现方需自行处理并发输出
+ */
+public interface AnalysisListener {
+
+    /**
+     * 找到一个买长乘短方案
+     */
+    void onResult(BuyLongResult result);
+
+    /**
+     * 过程提示信息（如正在查询的车次）
+     */
+    default void onMessage(String message) {}
+
+    /**
+     * 进度更新，每完成一个候选查询调用一次
+     */
+    default void onProgress(AnalysisProgress progress) {}
+}
@@ -0,0 +1,327 @@
+package com.ticket.service;
+
+import com.ticket.model.AnalysisProgress;
+import com.ticket.model.BuyLongResult;
+import com.ticket.model.QueryPreference;
+import com.ticket.model.SeatClass;
+import com.ticket.model.Station;
+import com.ticket.model.StopOrder;
+import com.ticket.model.TrainInfo;
+import com.ticket.model.TrainStop;
+import com.ticket.util.AppConfig;
+import com.ticket.util.HttpUtil;
+import com.ticket.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * "买长乘短"分析 - 对直达无票、且目的地不是终到站的车次，查询延伸到后续站点的余票
+ *
+ * 候选查询（车次 + 延伸站）按用户偏好打分后放入优先队列，分数高的先查；
+ * 经停站按队列顺序成批并行查询（{@link TrainRouteService#queryRoutes}），分析循环中不逐个等待；
+ * 每个车次的延伸站按配置的顺序（{@link StopOrder}）逐个查询，找到有票的即停止；
+ * 找到足够多满足偏好的方案后立即停止，不再为排在后面的慢车消耗请求。
+ * 每个方案找到后立即通过 {@link AnalysisListener} 推送，不必等待分析结束。
+ */
+public class BuyLongAnalyzer {
+
+    /** 已缓存的查询不消耗请求，优先执行 */
+    private static final double CACHED_BONUS = 1000;
+
+    /** 已开始查找延伸站的车次先查完，再为新车次查经停站，避免为排在后面的车次白查经停站 */
+    private static final double IN_PROGRESS_BONUS = 500;
+
+    /** 出发时间不在偏好时段内的扣分 */
+    private static final double OUT_OF_WINDOW_PENALTY = 50;
+
+    /** 分数高的排在前面，同分按车次在列表中的顺序，成批查经停站时与出队顺序一致 */
+    private static final Comparator<Candidate> BY_SCORE = Comparator.comparingDouble((Candidate c) -> -c.score)
+            .thenComparingInt(c -> c.index);
+
+    private final StationService stationService;
+    private final TicketQueryService ticketQueryService;
+    private final TrainRouteService trainRouteService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "buy-long-analyzer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BuyLongAnalyzer(StationService stationService,
+                           TicketQueryService ticketQueryService,
+                           TrainRouteService trainRouteService) {
+        this.stationService = stationService;
+        this.ticketQueryService = ticketQueryService;
+        this.trainRouteService = trainRouteService;
+    }
+
+    /**
+     * 在后台线程分析买长乘短机会，结果和进度通过 listener 实时推送
+     *
+     * @return 分析结束时完成，值为全部方案
+     */
+    public CompletableFuture<List<BuyLongResult>> analyzeAsync(Station fromStation, Station toStation, String date,
+                                                               List<TrainInfo> trains, QueryPreference preference,
+                                                               AnalysisListener listener) {
+        return CompletableFuture.supplyAsync(
+                () -> analyze(fromStation, toStation, date, trains, preference, listener), executor);
+    }
+
+    /**
+     * 分析买长乘短机会
+     *
+     * @param fromStation 出发站
+     * @param toStation   目的站
+     * @param date        出发日期 (yyyy-MM-dd)
+     * @param trains      可延伸的无票车次
+     * @param preference  用户偏好
+     * @param listener    结果和进度回调
+     * @return 找到的买长乘短方案（每个车次至多一个）
+     */
+    public List<BuyLongResult> analyze(Station fromStation, Station toStation, String date,
+                                       List<TrainInfo> trains, QueryPreference preference,
+                                       AnalysisListener listener) {
+        long startTime = System.currentTimeMillis();
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(BY_SCORE);
+        int skippedBySeat = 0;
+        for (int i = 0; i < trains.size(); i++) {
+            TrainInfo train = trains.get(i);
+            if (!offersPreferredSeat(train, preference.getSeatClasses())) {
+                skippedBySeat++;
+                continue;
+            }
+            queue.add(new Candidate(train, i, scoreTrain(train, preference)));
+        }
+        if (skippedBySeat > 0) {
+            listener.onMessage("  跳过 " + skippedBySeat + " 个不设所需座席的车次");
+        }
+
+        List<BuyLongResult> results = new ArrayList<>();
+        Set<TrainInfo> done = new HashSet<>();
+        Map<String, List<TrainStop>> routes = new HashMap<>();
+        StopOrder order = AppConfig.current().getStopOrder();
+        int routeBatch = Math.max(1, AppConfig.current().getRouteBatch());
+        int goodCount = 0;
+        int routed = 0;
+        int total = queue.size();
+        int completed = 0;
+
+        while (!queue.isEmpty()) {
+            if (goodCount >= preference.getMaxResults()) {
+                int remaining = (int) queue.stream().map(c -> c.train).distinct().count();
+                listener.onMessage("  已找到 " + goodCount + " 个满足偏好的方案，跳过剩余 " + remaining + " 个车次");
+                break;
+            }
+
+            Candidate candidate = queue.poll();
+            TrainInfo train = candidate.train;
+            if (done.contains(train)) continue;
+
+            StopSearch search = candidate.search;
+            if (search == null) {
+                if (!routes.containsKey(train.getTrainNo())) {
+                    List<TrainInfo> batch = nextRouteBatch(train, queue, done, routes, routeBatch);
+                    routes.putAll(trainRouteService.queryRoutes(batch, date, batch.size()));
+                }
+                routed++;
+                listener.onMessage("[" + routed + "/" + total + "] "
+                        + train.getStationTrainCode()
+                        + " (" + train.getFromStationName() + "→" + train.getToStationName()
+                        + ", 终到: " + train.getEndStationName() + ")");
+                List<TrainStop> stopsAfter = stopsAfter(train, routes.get(train.getTrainNo()), toStation, listener);
+                completed++;
+                if (stopsAfter.isEmpty()) {
+                    done.add(train);
+                } else {
+                    search = StopSearch.create(order, stopsAfter, AppConfig.current().getMaxSampledStops());
+                    queue.add(probe(fromStation, date, candidate, candidate.score, search));
+                }
+                listener.onProgress(progress(completed, queue.size(), results.size(), startTime));
+                continue;
+            }
+
+            // 每个车次同一时刻只有一个待查的延伸站，根据结果决定下一个，找到即停
+            TrainStop extStop = search.next();
+            search.report(extStop,
+                    findExtendedTicket(fromStation, train, extStop, date, preference.getSeatClasses()));
+            completed++;
+            if (search.next() != null) {
+                queue.add(probe(fromStation, date, candidate, candidate.base, search));
+            } else {
+                done.add(train);
+                if (search.getBestTicket() != null) {
+                    BuyLongResult result = new BuyLongResult(
+                            train, search.getBestTicket(), search.getBestStop().getStationName());
+                    results.add(result);
+                    listener.onResult(result);
+                    if (isGood(train, preference)) {
+                        goodCount++;
+                    }
+                } else {
+                    listener.onMessage("    ↳ " + train.getStationTrainCode() + " 延伸站点也无余票");
+                }
+            }
+            listener.onProgress(progress(completed, queue.size(), results.size(), startTime));
+        }
+
+        return results;
+    }
+
+    private AnalysisProgress progress(int completed, int queued, int found, long startTime) {
+        return new AnalysisProgress(completed, queued, HttpUtil.getInFlightCount(), found,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 车次打分：出发时间在偏好时段内、历时短的车次优先
+     */
+    private double scoreTrain(TrainInfo train, QueryPreference preference) {
+        double score = 100;
+        int depart = TimeUtil.toMinutes(train.getStartTime());
+        if (!preference.inDepartWindow(depart)) {
+            score -= OUT_OF_WINDOW_PENALTY;
+        }
+        int duration = TimeUtil.toMinutes(train.getDuration());
+        if (duration > 0) {
+            score -= duration / 30.0;
+        }
+        return score;
+    }
+
+    /**
+     * 车次是否设有任一偏好座席（没有偏好时总是 true）
+     */
+    private boolean offersPreferredSeat(TrainInfo train, Set<SeatClass> seatClasses) {
+        if (seatClasses.isEmpty()) return true;
+        for (SeatClass seatClass : seatClasses) {
+            if (train.hasSeatClass(seatClass)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 方案是否满足偏好（延伸区段已按所需座席筛选，这里只看出发时段）
+     */
+    private boolean isGood(TrainInfo train, QueryPreference preference) {
+        return preference.inDepartWindow(TimeUtil.toMinutes(train.getStartTime()));
+    }
+
+    /**
+     * 下一批要查经停站的车次：当前车次，加上队列中按分数排在前面、尚未查过经停站的车次
+     */
+    private List<TrainInfo> nextRouteBatch(TrainInfo first, PriorityQueue<Candidate> queue, Set<TrainInfo> done,
+                                           Map<String, List<TrainStop>> routes, int batchSize) {
+        List<TrainInfo> batch = new ArrayList<>();
+        batch.add(first);
+        List<Candidate> waiting = new ArrayList<>(queue);
+        waiting.sort(BY_SCORE);
+        for (Candidate c : waiting) {
+            if (batch.size() >= batchSize) break;
+            if (c.search != null || done.contains(c.train) || routes.containsKey(c.train.getTrainNo())
+                    || batch.contains(c.train)) {
+                continue;
+            }
+            batch.add(c.train);
+        }
+        return batch;
+    }
+
+    /**
+     * 从经停站中取目的地之后的全部站点（按站序）
+     */
+    private List<TrainStop> stopsAfter(TrainInfo train, List<TrainStop> route, Station toStation,
+                                       AnalysisListener listener) {
+        if (route == null || route.isEmpty()) {
+            listener.onMessage("    ↳ 未能获取经停站信息");
+            return new ArrayList<>();
+        }
+
+        List<TrainStop> stopsAfter = trainRouteService.getStopsAfter(
+                route, toStation.getName(), train.getToStationCode());
+
+        if (stopsAfter.isEmpty()) {
+            listener.onMessage("    ↳ 目的地之后无更多站点");
+        } else {
+            listener.onMessage("    ↳ 目的地之后还有 " + stopsAfter.size() + " 个站，正在查询余票...");
+        }
+        return stopsAfter;
+    }
+
+    /**
+     * 车次的下一次延伸站查询；已缓存的查询不消耗请求，加分优先执行
+     */
+    private Candidate probe(Station fromStation, String date, Candidate previous, double base, StopSearch search) {
+        String extCode = resolveCode(search.next());
+        double score = base + IN_PROGRESS_BONUS - search.getProbes() * 0.01;
+        if (extCode != null && ticketQueryService.isCached(fromStation.getCode(), extCode, date)) {
+            score += CACHED_BONUS;
+        }
+        return new Candidate(previous.train, previous.index, search, base, score);
+    }
+
+    /**
+     * 查询延伸站点的余票，所需座席有票时返回该车次，否则返回 null
+     * 筛选在缓存的紧凑记录上进行，只有所需座席的余票才算方案（如需要二等座时不接受无座和商务座）
+     */
+    private TrainInfo findExtendedTicket(Station fromStation, TrainInfo train, TrainStop extStop, String date,
+                                         Set<SeatClass> seatClasses) {
+        String extCode = resolveCode(extStop);
+        if (extCode == null) {
+            return null;
+        }
+
+        try {
+            return ticketQueryService.findAvailableTrain(
+                    fromStation.getCode(), extCode, date, train.getStationTrainCode(), seatClasses);
+        } catch (Exception e) {
+            // 查询失败，跳过
+            return null;
+        }
+    }
+
+    private String resolveCode(TrainStop stop) {
+        String code = stop.getStationCode();
+        if (code != null && !code.isEmpty()) {
+            return code;
+        }
+        Station station = stationService.getByName(stop.getStationName());
+        return station != null ? station.getCode() : null;
+    }
+
+    /**
+     * 候选查询：search 为 null 表示尚未获取经停站，否则为该车次的下一次延伸站查询
+     */
+    private static class Candidate {
+        final TrainInfo train;
+
+        /** 车次在输入列表中的位置 */
+        final int index;
+        final StopSearch search;
+
+        /** 车次本身的分数（不含缓存加分） */
+        final double base;
+        final double score;
+
+        Candidate(TrainInfo train, int index, double score) {
+            this(train, index, null, score, score);
+        }
+
+        Candidate(TrainInfo train, int index, StopSearch search, double base, double score) {
+            this.train = train;
+            this.index = index;
+            this.search = search;
+            this.base = base;
+            this.score = score;
+        }
+    }
+}
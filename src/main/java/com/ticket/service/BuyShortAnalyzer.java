@@ -0,0 +1,189 @@
+package com.ticket.service;
+
+import com.ticket.model.BuyShortResult;
+import com.ticket.model.SeatClass;
+import com.ticket.model.Station;
+import com.ticket.model.TrainInfo;
+import com.ticket.model.TrainStop;
+import com.ticket.util.AppConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "买短乘长"分析 - 直达无票时，尝试两种补票方式：
+ * <ul>
+ *   <li>提前站购票：购买出发站之前某站到目的地的票，在出发站上车</li>
+ *   <li>买短补票：购买出发站到目的地之前某站的票，上车后补票到目的地</li>
+ * </ul>
+ * 各车次的候选区段先汇总去重，同一区段的余票查询只发一次，多个车次共用结果。
+ */
+public class BuyShortAnalyzer {
+
+    /** 每个车次最多尝试的提前上车站数（由近到远） */
+    private static final int MAX_UPSTREAM_PER_TRAIN = 3;
+
+    /** 每个车次最多尝试的买短到站数（由远到近，覆盖行程越多补票越少） */
+    private static final int MAX_PARTIAL_PER_TRAIN = 3;
+
+    private final StationService stationService;
+    private final TicketQueryService ticketQueryService;
+    private final TrainRouteService trainRouteService;
+
+    public BuyShortAnalyzer(StationService stationService,
+                            TicketQueryService ticketQueryService,
+                            TrainRouteService trainRouteService) {
+        this.stationService = stationService;
+        this.ticketQueryService = ticketQueryService;
+        this.trainRouteService = trainRouteService;
+    }
+
+    /**
+     * 分析一组无票车次的买短乘长机会
+     *
+     * @param fromStation   出发站
+     * @param toStation     目的站
+     * @param date          出发日期 (yyyy-MM-dd)
+     * @param soldOutTrains 直达无票的车次
+     * @param seatClasses   所需座席，为空表示任意座席
+     * @return 每个车次至多一个所需座席有票的购票方案
+     */
+    public List<BuyShortResult> analyze(Station fromStation, Station toStation, String date,
+                                        List<TrainInfo> soldOutTrains, Set<SeatClass> seatClasses) {
+        // 1. 一次并行查好车次的经停站（新查询数受配置限制，超出的车次不分析），
+        //    收集每个车次的候选区段，并统计每个区段被多少车次共用
+        Map<String, List<TrainStop>> routes = trainRouteService.queryRoutes(soldOutTrains, date,
+                AppConfig.current().getBuyShortMaxRouteLookups());
+        Map<TrainInfo, List<Segment>> candidates = new LinkedHashMap<>();
+        Map<String, Segment> segments = new HashMap<>();
+        Map<String, Integer> demand = new HashMap<>();
+
+        for (TrainInfo train : soldOutTrains) {
+            List<Segment> trainSegments = collectSegments(fromStation, toStation, train, routes.get(train.getTrainNo()));
+            List<Segment> shared = new ArrayList<>();
+            for (Segment segment : trainSegments) {
+                Segment existing = segments.putIfAbsent(segment.key(), segment);
+                shared.add(existing != null ? existing : segment);
+                demand.merge(segment.key(), 1, Integer::sum);
+            }
+            if (!shared.isEmpty()) {
+                candidates.put(train, shared);
+            }
+        }
+
+        // 2. 共用车次多的区段优先查询，已缓存的区段不占查询额度
+        List<String> ordered = new ArrayList<>(demand.keySet());
+        ordered.sort((a, b) -> demand.get(b) - demand.get(a));
+
+        // 单次分析最多新发起的余票查询数由配置决定（缓存命中不计入）
+        int maxQueries = AppConfig.current().getBuyShortMaxQueries();
+        Map<String, List<TrainInfo>> answers = new HashMap<>();
+        int issued = 0;
+        for (String key : ordered) {
+            Segment segment = segments.get(key);
+            boolean cached = ticketQueryService.isCached(segment.fromCode, segment.toCode, date);
+            if (!cached) {
+                if (issued >= maxQueries) continue;
+                issued++;
+            }
+            try {
+                answers.put(key, ticketQueryService.queryTickets(segment.fromCode, segment.toCode, date));
+            } catch (Exception e) {
+                // 单个区段查询失败，跳过
+            }
+        }
+
+        // 3. 每个车次按候选顺序取第一个有票的区段
+        List<BuyShortResult> results = new ArrayList<>();
+        for (Map.Entry<TrainInfo, List<Segment>> entry : candidates.entrySet()) {
+            TrainInfo train = entry.getKey();
+            for (Segment segment : entry.getValue()) {
+                TrainInfo ticket = findTrain(answers.get(segment.key()), train.getStationTrainCode(), seatClasses);
+                if (ticket != null) {
+                    results.add(new BuyShortResult(train, ticket, segment.fromName, segment.toName, segment.type));
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 根据经停站列出车次的候选购票区段：先提前上车站（由近到远），再买短到站（由远到近）
+     */
+    private List<Segment> collectSegments(Station fromStation, Station toStation, TrainInfo train,
+                                          List<TrainStop> route) {
+        List<Segment> result = new ArrayList<>();
+        if (route == null || route.isEmpty()) return result;
+
+        int fromIdx = trainRouteService.indexOfStop(route, fromStation.getName(), train.getFromStationCode());
+        int toIdx = trainRouteService.indexOfStop(route, toStation.getName(), train.getToStationCode());
+        if (fromIdx < 0 || toIdx <= fromIdx) return result;
+
+        int upstream = 0;
+        for (int i = fromIdx - 1; i >= 0 && upstream < MAX_UPSTREAM_PER_TRAIN; i--) {
+            TrainStop stop = route.get(i);
+            String code = resolveCode(stop);
+            if (code == null || stationService.isSameCity(stop.getStationName(), fromStation.getName())) continue;
+            result.add(new Segment(code, toStation.getCode(), stop.getStationName(), toStation.getName(),
+                    BuyShortResult.Type.UPSTREAM));
+            upstream++;
+        }
+
+        int partial = 0;
+        for (int i = toIdx - 1; i > fromIdx && partial < MAX_PARTIAL_PER_TRAIN; i--) {
+            TrainStop stop = route.get(i);
+            String code = resolveCode(stop);
+            if (code == null || stationService.isSameCity(stop.getStationName(), toStation.getName())) continue;
+            result.add(new Segment(fromStation.getCode(), code, fromStation.getName(), stop.getStationName(),
+                    BuyShortResult.Type.PARTIAL));
+            partial++;
+        }
+        return result;
+    }
+
+    private String resolveCode(TrainStop stop) {
+        if (stop.getStationCode() != null && !stop.getStationCode().isEmpty()) {
+            return stop.getStationCode();
+        }
+        Station station = stationService.getByName(stop.getStationName());
+        return station != null ? station.getCode() : null;
+    }
+
+    private TrainInfo findTrain(List<TrainInfo> trains, String stationTrainCode, Set<SeatClass> seatClasses) {
+        if (trains == null) return null;
+        for (TrainInfo train : trains) {
+            if (train.getStationTrainCode().equals(stationTrainCode)) {
+                return train.hasAvailableTicket(seatClasses) ? train : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 候选购票区段
+     */
+    private static class Segment {
+        final String fromCode;
+        final String toCode;
+        final String fromName;
+        final String toName;
+        final BuyShortResult.Type type;
+
+        Segment(String fromCode, String toCode, String fromName, String toName, BuyShortResult.Type type) {
+            this.fromCode = fromCode;
+            this.toCode = toCode;
+            this.fromName = fromName;
+            this.toName = toName;
+            this.type = type;
+        }
+
+        String key() {
+            return fromCode + "|" + toCode;
+        }
+    }
+}
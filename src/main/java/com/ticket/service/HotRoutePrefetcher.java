@@ -0,0 +1,372 @@
+package com.ticket.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ticket.model.SeatClass;
+import com.ticket.model.TrainInfo;
+import com.ticket.util.AppConfig;
+import com.ticket.util.HttpUtil;
+import com.ticket.util.TimeUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热门线路预取 - 从用户的查询记录中学习常查的线路（出发站 → 到达站），在请求空闲时
+ * 预先查询这些线路未来几天的余票，并为其中可买长的无票车次查好经停站，
+ * 之后对热门线路的交互查询大多直接命中缓存。
+ *
+ * 线路热度为按半衰期衰减的查询次数，保存在本地文件中，重启后继续使用。
+ * 预取在后台线程进行：每个周期至多发一个请求，且只在没有其他请求进行时发出，
+ * 越热门、日期越近的越先查；被限流后暂停一段时间，不与交互查询争抢请求额度。
+ * 同一线路同一天的余票至少隔 prefetch.refreshMs 才再查（与缓存有效期无关），
+ * 每小时的预取请求数不超过 prefetch.maxPerHour，常驻进程空闲时也不会持续发请求。
+ */
+public class HotRoutePrefetcher {
+
+    /** 热度半衰期：一周前的查询只算半次 */
+    private static final long HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    /** 热度达到此值的线路才预取（约为近一周查过两次） */
+    private static final double MIN_SCORE = 1.5;
+
+    /** 热度低于此值的线路不再保存 */
+    private static final double FORGET_SCORE = 0.05;
+
+    /** 发现被限流后暂停预取的时间 */
+    private static final long RATE_LIMIT_PAUSE_MS = 5 * 60_000;
+
+    private static final long HOUR_MS = 60 * 60_000;
+
+    /** 经停站待查队列上限，满时丢弃最早加入的 */
+    static final int MAX_PENDING_ROUTES = 200;
+
+    private final TicketQueryService ticketQueryService;
+    private final TrainRouteService trainRouteService;
+
+    /** from|to -> 线路热度 */
+    private final Map<String, HotRoute> routes = new ConcurrentHashMap<>();
+
+    /** trainNo|date -> 待查经停站的车次，按加入顺序（只在预取线程中访问） */
+    private final Map<String, RouteTask> pendingRoutes = new LinkedHashMap<>();
+
+    /** from|to|date -> 上次预取余票的时间（只在预取线程中访问） */
+    private final Map<String, Long> lastFetched = new HashMap<>();
+
+    /** 最近一小时内预取请求的发出时间（只在预取线程中访问） */
+    private final Deque<Long> recentRequests = new ArrayDeque<>();
+
+    private final LongAdder ticketPrefetches = new LongAdder();
+    private final LongAdder routePrefetches = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean dirty;
+    private long lastRateLimitCount;
+    private long pausedUntil;
+
+    /** 余票和经停站轮流预取，两者都不会被对方饿死 */
+    private boolean routeTurn;
+
+    public HotRoutePrefetcher(TicketQueryService ticketQueryService, TrainRouteService trainRouteService) {
+        this.ticketQueryService = ticketQueryService;
+        this.trainRouteService = trainRouteService;
+    }
+
+    /**
+     * 记录一次用户查询（预取本身的查询不要记录）
+     */
+    public void recordSearch(String fromStationCode, String toStationCode) {
+        long now = System.currentTimeMillis();
+        routes.compute(fromStationCode + "|" + toStationCode, (key, route) -> route == null
+                ? new HotRoute(fromStationCode, toStationCode, 1, now)
+                : new HotRoute(fromStationCode, toStationCode, route.scoreAt(now) + 1, now));
+        dirty = true;
+    }
+
+    /**
+     * 读取保存的查询记录，开始后台预取；prefetch.routes 为 0 时只记录不预取
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+        load();
+        lastRateLimitCount = ticketQueryService.getRateLimitCount();
+        long interval = Math.max(100, AppConfig.current().getPrefetchIntervalMs());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hot-route-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止预取并保存查询记录
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        save();
+    }
+
+    /**
+     * 当前达到预取热度的线路，按热度从高到低
+     */
+    public List<HotRoute> getHotRoutes(int limit) {
+        long now = System.currentTimeMillis();
+        List<HotRoute> hot = new ArrayList<>();
+        for (HotRoute route : routes.values()) {
+            if (route.scoreAt(now) >= MIN_SCORE) {
+                hot.add(route);
+            }
+        }
+        hot.sort(Comparator.comparingDouble((HotRoute r) -> r.scoreAt(now)).reversed());
+        return hot.size() > limit ? new ArrayList<>(hot.subList(0, limit)) : hot;
+    }
+
+    /** 预取发起的余票查询数 */
+    public long getTicketPrefetchCount() {
+        return ticketPrefetches.sum();
+    }
+
+    /** 预取发起的经停站查询数 */
+    public long getRoutePrefetchCount() {
+        return routePrefetches.sum();
+    }
+
+    /**
+     * 一个预取周期：空闲时至多发一个请求，经停站和余票轮流，余票按热度和日期取第一个未缓存的
+     */
+    private void tick() {
+        try {
+            if (dirty) {
+                save();
+            }
+            AppConfig config = AppConfig.current();
+            if (config.getPrefetchRoutes() <= 0) return;
+
+            long now = System.currentTimeMillis();
+            long rateLimited = ticketQueryService.getRateLimitCount();
+            if (rateLimited > lastRateLimitCount) {
+                lastRateLimitCount = rateLimited;
+                pausedUntil = now + RATE_LIMIT_PAUSE_MS;
+                System.out.println("[预取] 被12306限流，暂停预取 " + RATE_LIMIT_PAUSE_MS / 60_000 + " 分钟");
+            }
+            if (now < pausedUntil || HttpUtil.getInFlightCount() > 0) return;
+
+            while (!recentRequests.isEmpty() && now - recentRequests.peekFirst() >= HOUR_MS) {
+                recentRequests.pollFirst();
+            }
+            if (recentRequests.size() >= config.getPrefetchMaxPerHour()) return;
+
+            routeTurn = !routeTurn;
+            if (routeTurn) {
+                if (!prefetchRoute()) prefetchTickets(config.getPrefetchRoutes(), config.getPrefetchDays());
+            } else {
+                if (!prefetchTickets(config.getPrefetchRoutes(), config.getPrefetchDays())) prefetchRoute();
+            }
+        } catch (Exception e) {
+            // 预取失败不影响交互查询，下个周期再试
+            System.err.println("[预取] 失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查一个尚未缓存的经停站，没有待查的返回 false
+     */
+    private boolean prefetchRoute() throws IOException {
+        RouteTask task;
+        while ((task = pollRoute()) != null) {
+            TrainInfo train = task.train;
+            if (trainRouteService.getCachedRoute(train.getTrainNo(), task.date) != null) continue;
+            routePrefetches.increment();
+            recentRequests.addLast(System.currentTimeMillis());
+            trainRouteService.queryRoute(train.getTrainNo(), train.getStartStationCode(),
+                    train.getEndStationCode(), task.date);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 查一个未缓存、且距上次预取已超过 prefetch.refreshMs 的 热门线路 + 日期，
+     * 结果中可买长的无票车次加入经停站待查；没有需要查的时返回 false
+     */
+    private boolean prefetchTickets(int routeLimit, int days) throws IOException {
+        long now = System.currentTimeMillis();
+        long refreshMs = AppConfig.current().getPrefetchRefreshMs();
+        lastFetched.values().removeIf(fetchedAt -> now - fetchedAt >= refreshMs);
+
+        LocalDate today = LocalDate.now();
+        for (HotRoute route : getHotRoutes(routeLimit)) {
+            for (int day = 0; day < days; day++) {
+                String date = today.plusDays(day).toString();
+                String key = route.from + "|" + route.to + "|" + date;
+                if (lastFetched.containsKey(key) || ticketQueryService.isCached(route.from, route.to, date)) continue;
+
+                lastFetched.put(key, now);
+                recentRequests.addLast(now);
+                ticketPrefetches.increment();
+                for (TrainInfo train : ticketQueryService.queryTickets(route.from, route.to, date)) {
+                    if (hasSoldOutSeat(train) && !train.getToStationCode().equals(train.getEndStationCode())) {
+                        enqueueRoute(train, date);
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 车次加入经停站待查：同一车次同一天只排一次，队列满时丢弃最早加入的
+     */
+    void enqueueRoute(TrainInfo train, String date) {
+        String key = train.getTrainNo() + "|" + date;
+        if (pendingRoutes.containsKey(key)) return;
+        if (pendingRoutes.size() >= MAX_PENDING_ROUTES) {
+            Iterator<String> oldest = pendingRoutes.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        pendingRoutes.put(key, new RouteTask(train, date));
+    }
+
+    /**
+     * 取出最早加入的待查车次，跳过出发日期已过的；没有时返回 null
+     */
+    RouteTask pollRoute() {
+        Iterator<RouteTask> it = pendingRoutes.values().iterator();
+        while (it.hasNext()) {
+            RouteTask task = it.next();
+            it.remove();
+            if (!TimeUtil.isPastDate(task.date)) return task;
+        }
+        return null;
+    }
+
+    /** 待查经停站的车次数 */
+    int getPendingRouteCount() {
+        return pendingRoutes.size();
+    }
+
+    /**
+     * 车次是否有所设座席售罄：预取时不知道用户要哪种座席，只剩商务座或无座的车次同样可能需要买长
+     */
+    private boolean hasSoldOutSeat(TrainInfo train) {
+        for (SeatClass seatClass : SeatClass.values()) {
+            if (train.hasSeatClass(seatClass) && !train.isAvailable(seatClass)) return true;
+        }
+        return false;
+    }
+
+    private void load() {
+        String historyFile = AppConfig.current().getPrefetchHistoryFile();
+        if (historyFile == null) return;
+        Path path = Paths.get(historyFile);
+        if (!Files.exists(path)) return;
+
+        try {
+            JsonObject root = JsonParser.parseString(Files.readString(path, StandardCharsets.UTF_8)).getAsJsonObject();
+            for (JsonElement element : root.getAsJsonArray("routes")) {
+                JsonObject obj = element.getAsJsonObject();
+                HotRoute route = new HotRoute(obj.get("from").getAsString(), obj.get("to").getAsString(),
+                        obj.get("score").getAsDouble(), obj.get("updatedAt").getAsLong());
+                routes.merge(route.from + "|" + route.to, route,
+                        (current, saved) -> current.updatedAt >= saved.updatedAt ? current : saved);
+            }
+        } catch (Exception e) {
+            System.err.println("读取热门线路记录失败: " + e.getMessage());
+        }
+    }
+
+    private synchronized void save() {
+        dirty = false;
+        String historyFile = AppConfig.current().getPrefetchHistoryFile();
+        if (historyFile == null) return;
+
+        long now = System.currentTimeMillis();
+        routes.values().removeIf(route -> route.scoreAt(now) < FORGET_SCORE);
+        JsonArray array = new JsonArray();
+        for (HotRoute route : routes.values()) {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("from", route.from);
+            obj.addProperty("to", route.to);
+            obj.addProperty("score", route.score);
+            obj.addProperty("updatedAt", route.updatedAt);
+            array.add(obj);
+        }
+        JsonObject root = new JsonObject();
+        root.add("routes", array);
+
+        try {
+            Path path = Paths.get(historyFile);
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(temp, root.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("保存热门线路记录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 一条线路的热度：updatedAt 时的衰减查询次数
+     */
+    public static class HotRoute {
+        private final String from;
+        private final String to;
+        private final double score;
+        private final long updatedAt;
+
+        HotRoute(String from, String to, double score, long updatedAt) {
+            this.from = from;
+            this.to = to;
+            this.score = score;
+            this.updatedAt = updatedAt;
+        }
+
+        /**
+         * 衰减到指定时刻的热度
+         */
+        double scoreAt(long now) {
+            return score * Math.pow(0.5, (double) Math.max(0, now - updatedAt) / HALF_LIFE_MS);
+        }
+
+        public String getFrom() { return from; }
+        public String getTo() { return to; }
+        public double getScore() { return score; }
+        public long getUpdatedAt() { return updatedAt; }
+    }
+
+    static class RouteTask {
+        final TrainInfo train;
+        final String date;
+
+        RouteTask(TrainInfo train, String date) {
+            this.train = train;
+            this.date = date;
+        }
+    }
+}
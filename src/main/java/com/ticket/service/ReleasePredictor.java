@@ -0,0 +1,225 @@
+package com.ticket.service;
+
+import com.ticket.model.Observation;
+import com.ticket.model.ReleaseWindow;
+import com.ticket.model.SeatClass;
+import com.ticket.store.AvailabilityLog;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 放票时间预测 - 从余票历史日志中统计各车次、各区段余票"无票 → 有票"出现的时段
+ * （退票、候补兑现后的余票回流等），据此建议轮询间隔：放票时段内勤查，其余时段少查。
+ *
+ * 每次 {@link #update()} 只读取上次之后新写入的记录，统计量增量累加，历史再长也不需要重新扫描。
+ * 观测数按 车次 × 小时 计：同一小时内的多次查询只计一次，这样日志压缩丢掉同一小时内
+ * 余票未变化的记录后，放票率不受轮询频率和是否压缩影响。
+ */
+public class ReleasePredictor {
+
+    /** 车次自身放票次数少于此数时，改用整条线路的统计 */
+    private static final int MIN_TRAIN_RELEASES = 3;
+
+    /** 放票率高于平均值的此倍数的小时段视为放票时段 */
+    private static final double WINDOW_FACTOR = 1.5;
+
+    /** 放票时段内的建议轮询间隔 */
+    public static final long FAST_POLL_MS = 30_000;
+
+    /** 非放票时段的建议轮询间隔 */
+    public static final long SLOW_POLL_MS = 10 * 60_000;
+
+    /** 历史数据不足时的建议轮询间隔 */
+    public static final long DEFAULT_POLL_MS = 2 * 60_000;
+
+    /** 距出发日的天数统计上限（更早的计入最后一格） */
+    private static final int MAX_DAYS_BEFORE = 15;
+
+    private static final long HOUR_MS = 60 * 60_000;
+
+    private final AvailabilityLog log;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /** 已处理到的日志序号 */
+    private long lastSeq;
+
+    /** 每个 出发站|到达站|日期|车次 上一次观测是否有票 */
+    private final Map<String, LastState> states = new HashMap<>();
+
+    /** 按 出发站|到达站|车次 和 出发站|到达站|* 汇总的统计 */
+    private final Map<String, ReleaseStats> stats = new HashMap<>();
+
+    public ReleasePredictor(AvailabilityLog log) {
+        this.log = log;
+    }
+
+    /**
+     * 读取日志中的新记录并更新统计
+     *
+     * @return 本次处理的记录数
+     */
+    public synchronized int update() throws IOException {
+        int[] processed = {0};
+        lastSeq = log.scan(lastSeq, observation -> {
+            accept(observation);
+            processed[0]++;
+        });
+        pruneStates();
+        return processed[0];
+    }
+
+    /**
+     * 预测车次在该区段的放票时段，按放票率从高到低排列
+     * 车次自身数据不足时使用整条线路的统计
+     */
+    public synchronized List<ReleaseWindow> predict(String fromStationCode, String toStationCode,
+                                                    String stationTrainCode) {
+        ReleaseStats s = statsFor(fromStationCode, toStationCode, stationTrainCode);
+        List<ReleaseWindow> windows = new ArrayList<>();
+        if (s == null || s.totalReleases == 0) return windows;
+
+        double threshold = (double) s.totalReleases / s.totalObservations * WINDOW_FACTOR;
+        int start = -1;
+        int releases = 0;
+        int observations = 0;
+        for (int hour = 0; hour <= 24; hour++) {
+            boolean hot = hour < 24 && s.observations[hour] > 0
+                    && (double) s.releases[hour] / s.observations[hour] >= threshold;
+            if (hot) {
+                if (start < 0) start = hour;
+                releases += s.releases[hour];
+                observations += s.observations[hour];
+            } else if (start >= 0) {
+                windows.add(new ReleaseWindow(start, hour, releases, observations));
+                start = -1;
+                releases = 0;
+                observations = 0;
+            }
+        }
+        windows.sort((a, b) -> Double.compare(b.getRate(), a.getRate()));
+        return windows;
+    }
+
+    /**
+     * 放票最常发生在出发前第几天，没有数据时返回 -1
+     */
+    public synchronized int typicalDaysBefore(String fromStationCode, String toStationCode, String stationTrainCode) {
+        ReleaseStats s = statsFor(fromStationCode, toStationCode, stationTrainCode);
+        if (s == null || s.totalReleases == 0) return -1;
+        int best = 0;
+        for (int d = 1; d <= MAX_DAYS_BEFORE; d++) {
+            if (s.releasesByDay[d] > s.releasesByDay[best]) best = d;
+        }
+        return best;
+    }
+
+    /**
+     * 建议的下次轮询间隔（毫秒）：当前处于放票时段时缩短，否则放长
+     */
+    public long suggestPollIntervalMs(String fromStationCode, String toStationCode, String stationTrainCode,
+                                      long now) {
+        List<ReleaseWindow> windows = predict(fromStationCode, toStationCode, stationTrainCode);
+        if (windows.isEmpty()) return DEFAULT_POLL_MS;
+        int hour = Instant.ofEpochMilli(now).atZone(zone).getHour();
+        for (ReleaseWindow window : windows) {
+            if (window.contains(hour)) return FAST_POLL_MS;
+        }
+        return SLOW_POLL_MS;
+    }
+
+    private void accept(Observation observation) {
+        boolean available = false;
+        for (SeatClass seatClass : SeatClass.values()) {
+            if (SeatClass.isAvailable(observation.getSeat(seatClass))) {
+                available = true;
+                break;
+            }
+        }
+
+        String route = observation.getFromStationCode() + "|" + observation.getToStationCode() + "|";
+        String stateKey = route + observation.getDate() + "|" + observation.getStationTrainCode();
+        LastState state = states.get(stateKey);
+        boolean released = state != null && !state.available && available;
+        if (state == null) {
+            state = new LastState(LocalDate.parse(observation.getDate()).toEpochDay());
+            states.put(stateKey, state);
+        }
+        state.available = available;
+        long epochHour = observation.getTimestamp() / HOUR_MS;
+        boolean observed = state.lastHour != epochHour;
+        state.lastHour = epochHour;
+        if (!observed && !released) return;
+
+        ZonedDateTime time = Instant.ofEpochMilli(observation.getTimestamp()).atZone(zone);
+        int hour = time.getHour();
+        int daysBefore = (int) Math.max(0, Math.min(MAX_DAYS_BEFORE,
+                state.epochDay - time.toLocalDate().toEpochDay()));
+        for (String key : new String[]{route + observation.getStationTrainCode(), route + "*"}) {
+            stats.computeIfAbsent(key, k -> new ReleaseStats()).add(hour, daysBefore, observed, released);
+        }
+    }
+
+    private ReleaseStats statsFor(String fromStationCode, String toStationCode, String stationTrainCode) {
+        String route = fromStationCode + "|" + toStationCode + "|";
+        ReleaseStats s = stats.get(route + stationTrainCode);
+        if (s == null || s.totalReleases < MIN_TRAIN_RELEASES) {
+            ReleaseStats routeStats = stats.get(route + "*");
+            if (routeStats != null) return routeStats;
+        }
+        return s;
+    }
+
+    /**
+     * 出发日期已过的车次不会再放票，丢弃其状态
+     */
+    private void pruneStates() {
+        long today = LocalDate.now(zone).toEpochDay();
+        Iterator<LastState> it = states.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().epochDay < today) it.remove();
+        }
+    }
+
+    private static class LastState {
+        final long epochDay;
+        boolean available;
+        /** 上一次计入观测数的小时（epoch 毫秒 / 1 小时） */
+        long lastHour = Long.MIN_VALUE;
+
+        LastState(long epochDay) {
+            this.epochDay = epochDay;
+        }
+    }
+
+    /**
+     * 按小时和距出发日天数累计的观测与放票次数
+     */
+    private static class ReleaseStats {
+        final int[] observations = new int[24];
+        final int[] releases = new int[24];
+        final int[] releasesByDay = new int[MAX_DAYS_BEFORE + 1];
+        int totalObservations;
+        int totalReleases;
+
+        void add(int hour, int daysBefore, boolean observed, boolean released) {
+            if (observed) {
+                observations[hour]++;
+                totalObservations++;
+            }
+            if (released) {
+                releases[hour]++;
+                releasesByDay[daysBefore]++;
+                totalReleases++;
+            }
+        }
+    }
+}
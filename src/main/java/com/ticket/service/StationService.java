@@ -1,6 +1,8 @@
 package com.ticket.service;
 
 import com.ticket.model.Station;
+import com.ticket.util.AppConfig;
+import com.ticket.util.FieldCursor;
 import com.ticket.util.HttpUtil;
 
 import java.io.*;
@@ -8,81 +10,250 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 车站数据服务 - 加载和查询车站编码信息
+ *
+ * 车站表以不可变快照发布，刷新时整体替换；getByCode 等查询可在任意线程并发调用，不加锁。
  */
 public class StationService {
 
     private static final String STATION_URL = "https://kyfw.12306.cn/otn/resources/js/framework/station_name.js";
     private static final String CACHE_FILE = "stations.dat";
 
-    /** 所有车站列表 */
-    private List<Station> allStations = new ArrayList<>();
+    /** 缓存文件对应的 ETag / Last-Modified，用于条件请求 */
+    private static final String META_FILE = "stations.meta";
 
-    /** 车站名称 -> Station 映射 */
-    private Map<String, Station> nameMap = new HashMap<>();
+    /** 当前车站表（不可变，刷新时整体替换），查询只读一次 volatile 字段，不加锁 */
+    private volatile StationTable table = StationTable.EMPTY;
 
-    /** 车站编码 -> Station 映射 */
-    private Map<String, Station> codeMap = new HashMap<>();
+    /** 车站编号字典：电报码 -> 编号，编号在进程内稳定，不随车站表刷新变化 */
+    private final Map<String, Integer> stationIds = new ConcurrentHashMap<>();
+
+    /** 编号 -> 电报码 / 站名提示（只追加，扩容时整体替换） */
+    private volatile String[] idCodes = new String[1024];
+    private volatile String[] idNames = new String[1024];
+    private int nextId = 0;
+
+    private ScheduledExecutorService refresher;
 
     /**
-     * 初始化车站数据（优先从缓存加载，否则从12306下载）
+     * 初始化车站数据（缓存未过期时直接加载，否则向12306确认是否有更新）
      */
     public void init() throws IOException {
-        // 尝试从缓存加载
         Path cachePath = Paths.get(CACHE_FILE);
         if (Files.exists(cachePath)) {
             long ageHours = (System.currentTimeMillis() - Files.getLastModifiedTime(cachePath).toMillis()) / (1000 * 60 * 60);
-            if (ageHours < 24 * 7) { // 缓存7天有效
+            if (ageHours < AppConfig.current().getStationCacheMaxAgeHours()) { // 默认缓存7天有效
                 System.out.println("从本地缓存加载车站数据...");
                 loadFromCache(cachePath);
-                if (!allStations.isEmpty()) {
-                    System.out.println("已加载 " + allStations.size() + " 个车站");
+                if (!table.all.isEmpty()) {
+                    System.out.println("已加载 " + table.all.size() + " 个车站");
                     return;
                 }
             }
         }
 
-        // 从12306下载
-        System.out.println("正在从12306下载车站数据...");
-        String jsContent = HttpUtil.get(STATION_URL);
-        parseStationData(jsContent);
-        saveToCache(cachePath, jsContent);
-        System.out.println("已加载 " + allStations.size() + " 个车站");
+        refresh();
+        if (table.all.isEmpty()) {
+            // 服务器返回未修改，但内存中还没有数据
+            loadFromCache(cachePath);
+        }
+        System.out.println("已加载 " + table.all.size() + " 个车站");
     }
 
     /**
-     * 解析 station_name.js 的内容
-     * 格式: var station_names ='@bjb|北京北|VAP|beijingbei|bjb|0@...'
+     * 向12306确认车站表是否有更新：带 ETag / If-Modified-Since 条件请求，
+     * 未修改时只刷新缓存时间；有更新时下载并只合并新增、变化和删除的车站
+     *
+     * @return 有变化的车站数（新增 + 修改 + 删除）
      */
-    private void parseStationData(String jsContent) {
-        allStations.clear();
-        nameMap.clear();
-        codeMap.clear();
+    public synchronized int refresh() throws IOException {
+        Path cachePath = Paths.get(CACHE_FILE);
+        Path metaPath = Paths.get(META_FILE);
+        Map<String, String> validators = loadValidators(metaPath);
+
+        System.out.println("正在检查12306车站数据更新...");
+        if (!HttpUtil.downloadIfModified(STATION_URL, cachePath, validators)) {
+            Files.setLastModifiedTime(cachePath, FileTime.fromMillis(System.currentTimeMillis()));
+            System.out.println("车站数据未更新");
+            return 0;
+        }
+        saveValidators(metaPath, validators);
 
-        // 提取引号内的数据
-        int start = jsContent.indexOf("'");
-        int end = jsContent.lastIndexOf("'");
-        if (start < 0 || end <= start) {
+        List<Station> fresh;
+        try (Reader reader = Files.newBufferedReader(cachePath, StandardCharsets.UTF_8)) {
+            fresh = parseStationData(reader);
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        int changed = merge(fresh);
+        System.out.println("车站数据已更新，" + changed + " 个车站有变化");
+        return changed;
+    }
+
+    /**
+     * 直接载入车站列表，不读写缓存文件也不发起请求（离线基准测试等场景使用）
+     *
+     * @return 有变化的车站数（新增 + 修改 + 删除）
+     */
+    public int load(List<Station> stations) {
+        return merge(stations);
+    }
+
+    /**
+     * 在后台定期刷新车站数据（常驻进程使用），查询不受影响
+     */
+    public synchronized void startBackgroundRefresh(long intervalHours) {
+        if (refresher != null) return;
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "station-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                System.err.println("车站数据刷新失败: " + e.getMessage());
+            }
+        }, intervalHours, intervalHours, TimeUnit.HOURS);
+    }
+
+    /**
+     * 将新的车站表与当前车站表比较，未变化的车站沿用原对象，只有新增、变化和删除的车站写入索引；
+     * 没有变化时沿用当前表。新表在旁边构建完成后一次性替换，查询线程要么看到旧表、要么看到新表
+     */
+    private synchronized int merge(List<Station> fresh) {
+        StationTable old = table;
+        List<Station> stations = new ArrayList<>(fresh.size());
+        List<Station> upserts = new ArrayList<>();
+        List<Station> removed = new ArrayList<>();
+        Set<String> codes = new HashSet<>();
+        for (Station station : fresh) {
+            codes.add(station.getCode());
+            Station previous = old.byCode.get(station.getCode());
+            if (previous != null && isUnchanged(previous, station)) {
+                stations.add(previous);
+            } else {
+                stations.add(station);
+                upserts.add(station);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+            }
+        }
+        int deleted = 0;
+        for (Station station : old.all) {
+            if (!codes.contains(station.getCode())) {
+                removed.add(station);
+                deleted++;
+            }
+        }
+        if (upserts.isEmpty() && deleted == 0) {
+            return 0;
+        }
+        table = old.apply(stations, removed, upserts);
+        return upserts.size() + deleted;
+    }
+
+    private boolean isUnchanged(Station a, Station b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getAbbr(), b.getAbbr())
+                && Objects.equals(a.getPinyin(), b.getPinyin())
+                && Objects.equals(a.getInitial(), b.getInitial())
+                && Objects.equals(a.getIndex(), b.getIndex())
+                && Objects.equals(a.getCityName(), b.getCityName());
+    }
+
+    private Map<String, String> loadValidators(Path metaPath) {
+        Map<String, String> validators = new HashMap<>();
+        if (!Files.exists(metaPath)) return validators;
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaPath, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            return validators;
+        }
+        for (String key : props.stringPropertyNames()) {
+            validators.put(key, props.getProperty(key));
+        }
+        return validators;
+    }
+
+    private void saveValidators(Path metaPath, Map<String, String> validators) {
+        Properties props = new Properties();
+        props.putAll(validators);
+        try (Writer writer = Files.newBufferedWriter(metaPath, StandardCharsets.UTF_8)) {
+            props.store(writer, null);
+        } catch (IOException e) {
+            System.err.println("车站数据校验信息保存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 流式解析 station_name.js 的内容，逐个车站读取，不把整个文件读成字符串
+     * 格式: var station_names ='@bjb|北京北|VAP|beijingbei|bjb|0|0357|北京|||@...'
+     * 新版数据第8个字段为所属城市名，旧版数据没有该字段
+     *
+     * @return 解析出的车站，格式异常时返回空列表
+     */
+    private List<Station> parseStationData(Reader reader) throws IOException {
+        List<Station> stations = new ArrayList<>();
+        char[] buffer = new char[8192];
+        StringBuilder entry = new StringBuilder(64);
+        FieldCursor fields = new FieldCursor('|');
+        boolean inData = false;
+        boolean closed = false;
+        int n;
+        outer:
+        while ((n = reader.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (!inData) {
+                    // 数据在第一对单引号之内
+                    inData = c == '\'';
+                } else if (c == '\'') {
+                    closed = true;
+                    break outer;
+                } else if (c == '@') {
+                    addStation(entry, fields, stations);
+                    entry.setLength(0);
+                } else {
+                    entry.append(c);
+                }
+            }
+        }
+
+        if (!closed) {
             System.err.println("车站数据格式异常，无法解析");
-            return;
-        }
-        String data = jsContent.substring(start + 1, end);
-
-        // 按 @ 分割每个车站
-        String[] entries = data.split("@");
-        for (String entry : entries) {
-            if (entry.isEmpty()) continue;
-            String[] parts = entry.split("\\|");
-            if (parts.length >= 6) {
-                Station station = new Station(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5]);
-                allStations.add(station);
-                nameMap.put(parts[1], station);
-                codeMap.put(parts[2], station);
+            return new ArrayList<>();
+        }
+        addStation(entry, fields, stations);
+        return stations;
+    }
+
+    /**
+     * 解析单个车站条目
+     */
+    private void addStation(CharSequence entry, FieldCursor fields, List<Station> stations) {
+        if (entry.length() == 0) return;
+        fields.reset(entry);
+        if (fields.count() >= 6) {
+            Station station = new Station(fields.get(0), fields.get(1), fields.get(2),
+                    fields.get(3), fields.get(4), fields.get(5));
+            if (!fields.isEmpty(7)) {
+                station.setCityName(fields.get(7));
             }
+            stations.add(station);
         }
     }
 
@@ -90,14 +261,81 @@ public class StationService {
      * 根据中文名精确查找车站
      */
     public Station getByName(String name) {
-        return nameMap.get(name);
+        return table.byName.get(name);
     }
 
     /**
      * 根据电报码查找车站
      */
     public Station getByCode(String code) {
-        return codeMap.get(code);
+        return table.byCode.get(code);
+    }
+
+    /**
+     * 获取电报码对应的整数编号，首次出现时分配新编号
+     *
+     * @param code     电报码
+     * @param nameHint 站名（车站表中没有该站时用于还原站名），可为 null
+     */
+    public int stationId(String code, String nameHint) {
+        Integer id = stationIds.get(code);
+        if (id != null) return id;
+
+        synchronized (stationIds) {
+            id = stationIds.get(code);
+            if (id != null) return id;
+            if (nextId == idCodes.length) {
+                idCodes = Arrays.copyOf(idCodes, nextId * 2);
+                idNames = Arrays.copyOf(idNames, nextId * 2);
+            }
+            idCodes[nextId] = code;
+            idNames[nextId] = nameHint;
+            stationIds.put(code, nextId);
+            return nextId++;
+        }
+    }
+
+    /**
+     * 编号对应的电报码
+     */
+    public String stationCode(int id) {
+        return idCodes[id];
+    }
+
+    /**
+     * 编号对应的站名：优先车站表，其次分配编号时的站名提示，都没有时返回电报码
+     */
+    public String stationName(int id) {
+        String code = idCodes[id];
+        Station station = table.byCode.get(code);
+        if (station != null) return station.getName();
+        String hint = idNames[id];
+        return hint != null ? hint : code;
+    }
+
+    /**
+     * 获取车站所属城市名
+     * 优先使用 station_name.js 中的城市字段，否则去掉站名末尾的方位字（东南西北）
+     */
+    public String getCityName(String stationName) {
+        if (stationName == null) return "";
+        Station station = table.byName.get(stationName);
+        if (station != null && station.getCityName() != null) {
+            return station.getCityName();
+        }
+        if (stationName.length() > 2 && "东南西北".indexOf(stationName.charAt(stationName.length() - 1)) >= 0) {
+            return stationName.substring(0, stationName.length() - 1);
+        }
+        return stationName;
+    }
+
+    /**
+     * 两个车站是否属于同一城市（如 衡阳 与 衡阳东），可同城换乘
+     */
+    public boolean isSameCity(String stationName1, String stationName2) {
+        if (stationName1 == null || stationName2 == null) return false;
+        if (stationName1.equals(stationName2)) return true;
+        return getCityName(stationName1).equals(getCityName(stationName2));
     }
 
     /**
@@ -105,7 +343,7 @@ public class StationService {
      */
     public List<Station> search(String keyword) {
         String kw = keyword.toLowerCase().trim();
-        return allStations.stream()
+        return table.all.stream()
                 .filter(s -> s.getName().contains(kw)
                         || s.getPinyin().contains(kw)
                         || s.getInitial().contains(kw)
@@ -114,25 +352,48 @@ public class StationService {
     }
 
     /**
-     * 保存到本地缓存
+     * 从本地缓存加载
      */
-    private void saveToCache(Path path, String content) {
-        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            writer.write(content);
+    private void loadFromCache(Path path) {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            merge(parseStationData(reader));
         } catch (IOException e) {
-            System.err.println("缓存保存失败: " + e.getMessage());
+            System.err.println("缓存读取失败: " + e.getMessage());
         }
     }
 
     /**
-     * 从本地缓存加载
+     * 不可变的车站表快照：列表和两个索引一起替换
      */
-    private void loadFromCache(Path path) {
-        try {
-            String content = Files.readString(path, StandardCharsets.UTF_8);
-            parseStationData(content);
-        } catch (IOException e) {
-            System.err.println("缓存读取失败: " + e.getMessage());
+    private static class StationTable {
+        static final StationTable EMPTY = new StationTable(new ArrayList<>(), new HashMap<>(), new HashMap<>());
+
+        final List<Station> all;
+        final Map<String, Station> byName;
+        final Map<String, Station> byCode;
+
+        private StationTable(List<Station> stations, Map<String, Station> names, Map<String, Station> codes) {
+            this.all = Collections.unmodifiableList(stations);
+            this.byName = Collections.unmodifiableMap(names);
+            this.byCode = Collections.unmodifiableMap(codes);
+        }
+
+        /**
+         * 在本表索引的副本上删除旧条目、写入新增和变化的车站，得到新表（本表不变）
+         * 副本是整表的浅拷贝，未变化车站的条目原样沿用，不重新解析也不重新创建对象
+         */
+        StationTable apply(List<Station> stations, List<Station> removed, List<Station> upserts) {
+            Map<String, Station> names = new HashMap<>(byName);
+            Map<String, Station> codes = new HashMap<>(byCode);
+            for (Station station : removed) {
+                names.remove(station.getName(), station);
+                codes.remove(station.getCode(), station);
+            }
+            for (Station station : upserts) {
+                names.put(station.getName(), station);
+                codes.put(station.getCode(), station);
+            }
+            return new StationTable(stations, names, codes);
         }
     }
 }
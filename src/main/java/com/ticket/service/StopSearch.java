@@ -0,0 +1,146 @@
+package com.ticket.service;
+
+import com.ticket.model.StopOrder;
+import com.ticket.model.TrainInfo;
+import com.ticket.model.TrainStop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 单个车次的延伸站查找：依次给出下一个要查询的延伸站，根据查询结果决定是否继续
+ */
+abstract class StopSearch {
+
+    private TrainStop bestStop;
+    private TrainInfo bestTicket;
+    private int probes;
+
+    /**
+     * 按查询顺序创建查找
+     *
+     * @param stopsAfter 目的地之后的全部站点（按站序）
+     * @param maxSampled 除第一次查询外最多再查的站数
+     */
+    static StopSearch create(StopOrder order, List<TrainStop> stopsAfter, int maxSampled) {
+        switch (order) {
+            case BINARY:
+                return new Binary(stopsAfter, maxSampled);
+            case TERMINUS:
+                return new Ordered(sample(stopsAfter, maxSampled));
+            default:
+                List<TrainStop> sampled = sample(stopsAfter, maxSampled);
+                sampled.sort(Comparator.comparingInt(stopsAfter::indexOf));
+                return new Ordered(sampled);
+        }
+    }
+
+    /**
+     * 终到站加均匀取样的中间站，终到站在最前
+     */
+    private static List<TrainStop> sample(List<TrainStop> stopsAfter, int maxSampled) {
+        List<TrainStop> result = new ArrayList<>();
+        result.add(stopsAfter.get(stopsAfter.size() - 1));
+        if (stopsAfter.size() > 1 && maxSampled > 0) {
+            int step = Math.max(1, stopsAfter.size() / maxSampled);
+            for (int i = 0; i < stopsAfter.size() - 1 && result.size() <= maxSampled; i += step) {
+                result.add(stopsAfter.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 下一个要查询的延伸站，查找结束时返回 null
+     */
+    abstract TrainStop next();
+
+    /**
+     * 报告一次查询结果
+     *
+     * @param ticket 所需座席有票时为该车次，否则为 null
+     */
+    void report(TrainStop stop, TrainInfo ticket) {
+        probes++;
+        if (ticket != null) {
+            bestStop = stop;
+            bestTicket = ticket;
+        }
+        onReport(ticket != null);
+    }
+
+    abstract void onReport(boolean available);
+
+    /** 找到的有票延伸站（最近的一个），没有时为 null */
+    TrainStop getBestStop() { return bestStop; }
+    TrainInfo getBestTicket() { return bestTicket; }
+
+    /** 已查询次数 */
+    int getProbes() { return probes; }
+
+    /**
+     * 按给定顺序逐个查询，第一个有票即结束
+     */
+    private static class Ordered extends StopSearch {
+        private final List<TrainStop> stops;
+        private int index;
+        private boolean found;
+
+        Ordered(List<TrainStop> stops) {
+            this.stops = stops;
+        }
+
+        @Override
+        TrainStop next() {
+            return found || index >= stops.size() ? null : stops.get(index);
+        }
+
+        @Override
+        void onReport(boolean available) {
+            index++;
+            found = available;
+        }
+    }
+
+    /**
+     * 先查终到站，有票后在 [lo, hi) 中折半查找最近的有票站
+     */
+    private static class Binary extends StopSearch {
+        private final List<TrainStop> stops;
+        private int budget;
+        private int lo;
+        private int hi;
+        private int probe;
+
+        Binary(List<TrainStop> stops, int maxSampled) {
+            this.stops = stops;
+            // maxSampled 可能是 Integer.MAX_VALUE（不限），加一会溢出
+            this.budget = maxSampled >= Integer.MAX_VALUE - 1 ? Integer.MAX_VALUE : 1 + Math.max(0, maxSampled);
+            this.lo = 0;
+            this.hi = stops.size() - 1;
+            this.probe = hi;
+        }
+
+        @Override
+        TrainStop next() {
+            return probe < 0 || budget <= 0 ? null : stops.get(probe);
+        }
+
+        @Override
+        void onReport(boolean available) {
+            budget--;
+            if (probe == stops.size() - 1 && !available) {
+                // 终到站都没有票，更近的站按单调假设也不会有
+                probe = -1;
+                return;
+            }
+            if (available) {
+                hi = probe;
+            } else {
+                lo = probe + 1;
+            }
+            probe = lo < hi ? (lo + hi) >>> 1 : -1;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ticket.service;
+
+import com.ticket.model.TrainInfo;
+
+import java.util.List;
+
+/**
+ * 余票观察者 - 每次从12306实际取得余票数据后回调（缓存命中不回调）
+ * 回调在查询线程上同步执行，实现方应尽快返回
+ */
+public interface TicketObserver {
+
+    /**
+     * @param fromStationCode 查询出发站电报码
+     * @param toStationCode   查询到达站电报码
+     * @param date            出发日期 (yyyy-MM-dd)
+     * @param trains          解析后的车次余票
+     * @param timestamp       取得数据的时间（毫秒）
+     */
+    void onTickets(String fromStationCode, String toStationCode, String date, List<TrainInfo> trains, long timestamp);
+}
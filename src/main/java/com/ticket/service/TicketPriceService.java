@@ -0,0 +1,180 @@
+package com.ticket.service;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ticket.model.BuyLongResult;
+import com.ticket.model.SeatClass;
+import com.ticket.model.TrainInfo;
+import com.ticket.util.HttpUtil;
+import com.ticket.util.SingleFlight;
+import com.ticket.util.TimeUtil;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 票价查询服务 - 查询车次某区段各座席的票价，并按买长多付的钱对买长乘短方案排序
+ */
+public class TicketPriceService {
+
+    private static final String PRICE_URL = "https://kyfw.12306.cn/otn/leftTicket/queryTicketPrice";
+
+    /** 票价响应中的座席键（带 "¥" 的值）对应的座席类别 */
+    private static final Map<String, SeatClass> PRICE_KEYS = Map.ofEntries(
+            Map.entry("A9", SeatClass.BUSINESS),
+            Map.entry("P", SeatClass.BUSINESS),
+            Map.entry("M", SeatClass.FIRST_CLASS),
+            Map.entry("O", SeatClass.SECOND_CLASS),
+            Map.entry("A6", SeatClass.ADVANCED_SOFT_SLEEPER),
+            Map.entry("A4", SeatClass.SOFT_SLEEPER),
+            Map.entry("F", SeatClass.MOVE_SLEEPER),
+            Map.entry("A3", SeatClass.HARD_SLEEPER),
+            Map.entry("A2", SeatClass.SOFT_SEAT),
+            Map.entry("A1", SeatClass.HARD_SEAT),
+            Map.entry("WZ", SeatClass.NO_SEAT));
+
+    /** 按多付金额排序，票价未知的排在最后（保持原有顺序） */
+    private static final Comparator<BuyLongResult> BY_EXTRA_COST = Comparator.comparingLong(
+            r -> r.hasPrices() ? r.getExtraCost() : Long.MAX_VALUE);
+
+    /** 两次清理缓存的最小间隔 */
+    private static final long SWEEP_INTERVAL_MS = 60_000;
+
+    /** 票价缓存：trainNo|起站序|止站序|座席类型|date -> 座席票价（分），同一天的票价不会变化 */
+    private final Map<String, Map<SeatClass, Integer>> priceCache = new ConcurrentHashMap<>();
+
+    /** 上次清理票价缓存的时间 */
+    private volatile long lastSweepAt;
+
+    /** 相同区段的并发查询合并为一次请求 */
+    private final SingleFlight<String, Map<SeatClass, Integer>> flights = new SingleFlight<>();
+
+    /**
+     * 查询车次在余票查询区段上各座席的票价
+     *
+     * @param train 余票查询结果中的车次（需带站序和座席类型）
+     * @param date  出发日期 (yyyy-MM-dd)
+     * @return 座席 -> 票价（分），车次缺少站序或座席类型时返回空表
+     */
+    public Map<SeatClass, Integer> queryPrice(TrainInfo train, String date) throws IOException {
+        String fromNo = train.getFromStationNo();
+        String toNo = train.getToStationNo();
+        String seatTypes = train.getSeatTypes();
+        if (fromNo == null || toNo == null || seatTypes == null) {
+            return Collections.emptyMap();
+        }
+
+        String key = train.getTrainNo() + "|" + fromNo + "|" + toNo + "|" + seatTypes + "|" + date;
+        Map<SeatClass, Integer> cached = priceCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            return flights.execute(key, () -> {
+                Map<SeatClass, Integer> latest = priceCache.get(key);
+                if (latest != null) {
+                    return latest;
+                }
+                String url = PRICE_URL
+                        + "?train_no=" + train.getTrainNo()
+                        + "&from_station_no=" + fromNo
+                        + "&to_station_no=" + toNo
+                        + "&seat_types=" + seatTypes
+                        + "&train_date=" + date;
+                Map<SeatClass, Integer> prices = HttpUtil.getStream(url, this::parseResponse);
+                if (!prices.isEmpty()) {
+                    prices = Collections.unmodifiableMap(prices);
+                    sweep();
+                    priceCache.put(key, prices);
+                }
+                return prices;
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 移除出发日期已过的票价（写入缓存时调用，每分钟至多一次）
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweepAt < SWEEP_INTERVAL_MS) return;
+        lastSweepAt = now;
+        priceCache.keySet().removeIf(key -> TimeUtil.isPastDate(key.substring(key.lastIndexOf('|') + 1)));
+    }
+
+    /**
+     * 为每个方案查询延伸区段和直达区段的票价，按买长多付的钱从少到多排序（原地排序）
+     *
+     * 比较的座席取延伸区段有票的座席中最便宜的一种（限于 seatClasses，为空表示任意座席）；
+     * 查询失败或票价缺失的方案不计价，排在最后。
+     */
+    public void rankByExtraCost(List<BuyLongResult> results, Set<SeatClass> seatClasses, String date) {
+        Set<SeatClass> candidates = seatClasses == null || seatClasses.isEmpty()
+                ? EnumSet.allOf(SeatClass.class) : seatClasses;
+        for (BuyLongResult result : results) {
+            try {
+                Map<SeatClass, Integer> extendedPrices = queryPrice(result.getExtendedTrain(), date);
+                SeatClass cheapest = null;
+                for (SeatClass seatClass : candidates) {
+                    Integer price = extendedPrices.get(seatClass);
+                    if (price == null || !result.getExtendedTrain().isAvailable(seatClass)) continue;
+                    if (cheapest == null || price < extendedPrices.get(cheapest)) {
+                        cheapest = seatClass;
+                    }
+                }
+                if (cheapest == null) continue;
+
+                Integer direct = queryPrice(result.getOriginalTrain(), date).get(cheapest);
+                result.setPrices(cheapest,
+                        direct != null ? direct : BuyLongResult.UNKNOWN_PRICE,
+                        extendedPrices.get(cheapest));
+            } catch (IOException e) {
+                // 票价只用于排序，查询失败不影响方案本身
+            }
+        }
+        results.sort(BY_EXTRA_COST);
+    }
+
+    /**
+     * 解析票价响应：data 中各座席键对应 "¥553.5" 形式的票价
+     */
+    private Map<SeatClass, Integer> parseResponse(Reader response) {
+        Map<SeatClass, Integer> prices = new EnumMap<>(SeatClass.class);
+        try {
+            JsonObject root = JsonParser.parseReader(response).getAsJsonObject();
+            if (!root.has("data") || !root.get("data").isJsonObject()) {
+                return prices;
+            }
+            for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject("data").entrySet()) {
+                SeatClass seatClass = PRICE_KEYS.get(entry.getKey());
+                if (seatClass == null || !entry.getValue().isJsonPrimitive()) continue;
+                String value = entry.getValue().getAsString();
+                if (!value.startsWith("¥")) continue;
+                try {
+                    int fen = new BigDecimal(value.substring(1)).movePointRight(2).intValue();
+                    prices.merge(seatClass, fen, Math::min);
+                } catch (NumberFormatException ignored) {
+                    // 跳过无法解析的票价
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("解析票价数据失败: " + e.getMessage());
+        }
+        return prices;
+    }
+}
@@ -1,16 +1,33 @@
 package com.ticket.service;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.ticket.model.CompactTrain;
+import com.ticket.model.SeatClass;
 import com.ticket.model.Station;
 import com.ticket.model.TrainInfo;
+import com.ticket.util.AppConfig;
+import com.ticket.util.FieldCursor;
 import com.ticket.util.HttpUtil;
+import com.ticket.util.SessionStore;
+import com.ticket.util.SingleFlight;
+import com.ticket.util.TimeUtil;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,15 +44,58 @@ public class TicketQueryService {
             "queryO", "queryE", "queryD", "queryY"
     };
 
-    private String queryEndpoint = null;
+    /** 两次清理缓存的最小间隔 */
+    private static final long SWEEP_INTERVAL_MS = 60_000;
+
+    /** 余票字段的常见取值，解析时直接复用，不为每条记录新建字符串 */
+    private static final String[] COMMON_SEAT_VALUES = {"有", "无", "*"};
+
+    /** 余票张数 0..99 的字符串 */
+    private static final String[] SEAT_COUNTS = new String[100];
+
+    static {
+        for (int i = 0; i < SEAT_COUNTS.length; i++) {
+            SEAT_COUNTS[i] = String.valueOf(i).intern();
+        }
+    }
+
+    /** 收到 c_url 后连续切换接口的上限，防止服务器反复下发时死循环 */
+    private static final int MAX_ENDPOINT_SWITCHES = 3;
+
     private final StationService stationService;
-    private boolean sessionInitialized = false;
 
-    /** 连续限流计数器 */
-    private int rateLimitCount = 0;
+    /** 当前会话状态（不可变），切换接口或刷新会话时整体替换；为 null 表示尚未初始化 */
+    private final AtomicReference<SessionState> session = new AtomicReference<>();
+
+    /** 初始化和刷新会话时持有，同一版本的会话只会被刷新一次 */
+    private final Object sessionLock = new Object();
 
     /** 总请求计数器 */
-    private int totalRequests = 0;
+    private final LongAdder totalRequests = new LongAdder();
+
+    /** 被限流（请求被拒）次数 */
+    private final LongAdder rateLimitCount = new LongAdder();
+
+    /** 会话刷新次数 */
+    private final LongAdder sessionRefreshCount = new LongAdder();
+
+    /** 命中余票缓存、未发起请求的查询次数 */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /** 是否在 TrainInfo 中保留原始数据串（仅调试用，缓存中始终不保留） */
+    private boolean keepRawData = false;
+
+    /** 余票缓存：from|to|date -> 紧凑格式的查询结果，供买长、买短、中转等分析共享 */
+    private final Map<String, CachedResult> cache = new ConcurrentHashMap<>();
+
+    /** 上次清理过期缓存的时间 */
+    private volatile long lastSweepAt;
+
+    /** 余票观察者（历史记录、快照等） */
+    private final List<TicketObserver> observers = new CopyOnWriteArrayList<>();
+
+    /** 相同 from|to|date 的并发查询合并为一次请求 */
+    private final SingleFlight<String, List<TrainInfo>> flights = new SingleFlight<>();
 
     public TicketQueryService(StationService stationService) {
         this.stationService = stationService;
@@ -45,21 +105,29 @@ public class TicketQueryService {
      * 初始化：建立会话并检测正确的 API endpoint
      */
     public void init() throws IOException {
-        if (!sessionInitialized) {
+        synchronized (sessionLock) {
+            if (session.get() != null) return;
+
+            // 优先复用本地会话快照，首次查询失败时再重新初始化
+            String savedEndpoint = SessionStore.restore();
+            if (savedEndpoint != null) {
+                session.set(new SessionState(savedEndpoint, 1, true));
+                System.out.println("已恢复上次的12306会话，查询接口: " + savedEndpoint);
+                return;
+            }
+
             System.out.println("正在初始化12306会话...");
             HttpUtil.initSession();
-            sessionInitialized = true;
-        }
-
-        if (queryEndpoint == null) {
-            detectEndpoint();
+            String endpoint = detectEndpoint();
+            session.set(new SessionState(endpoint, 1, false));
+            SessionStore.save(endpoint);
         }
     }
 
     /**
-     * 从 init 页面的 JS 中检测当前有效的查询 endpoint
+     * 从 init 页面的 JS 中检测当前有效的查询 endpoint，检测失败时返回默认接口
      */
-    private void detectEndpoint() {
+    private String detectEndpoint() {
         try {
             System.out.println("正在检测余票查询接口...");
             String html = HttpUtil.getHtml("https://kyfw.12306.cn/otn/leftTicket/init");
@@ -67,265 +135,436 @@ public class TicketQueryService {
             Pattern pattern = Pattern.compile("var\\s+CLeftTicketUrl\\s*=\\s*'([^']+)'");
             Matcher matcher = pattern.matcher(html);
             if (matcher.find()) {
-                String url = matcher.group(1);
-                if (url.contains("/")) {
-                    queryEndpoint = url.substring(url.lastIndexOf("/") + 1);
-                } else {
-                    queryEndpoint = url;
-                }
-                System.out.println("检测到查询接口: " + queryEndpoint);
-                return;
+                String endpoint = endpointName(matcher.group(1));
+                System.out.println("检测到查询接口: " + endpoint);
+                return endpoint;
             }
         } catch (Exception e) {
             System.err.println("检测接口失败: " + e.getMessage());
         }
 
-        queryEndpoint = "query";
-        System.out.println("使用默认查询接口: " + queryEndpoint);
+        System.out.println("使用默认查询接口: query");
+        return "query";
+    }
+
+    private String endpointName(String url) {
+        return url.contains("/") ? url.substring(url.lastIndexOf("/") + 1) : url;
     }
 
     /**
-     * 重新初始化会话（被限流后调用）
+     * 当前会话状态，尚未初始化时先初始化
      */
-    private void refreshSession() {
-        try {
-            System.out.println("    [刷新会话中...]");
-            HttpUtil.initSession();
-            sessionInitialized = true;
-            detectEndpoint();
-            rateLimitCount = 0;
-        } catch (Exception e) {
-            // 刷新失败，继续用旧的
+    private SessionState currentSession() throws IOException {
+        SessionState state = session.get();
+        if (state == null) {
+            init();
+            state = session.get();
         }
+        return state;
     }
 
     /**
-     * 查询两站之间的余票
+     * 重新初始化会话（被限流或恢复的会话失效后调用）
+     * 多个线程基于同一版本请求刷新时只刷新一次，其余线程直接使用刷新后的会话
      */
-    public List<TrainInfo> queryTickets(String fromStationCode, String toStationCode, String date) throws IOException {
-        if (!sessionInitialized) {
-            init();
+    private void refreshSession(SessionState observed) {
+        synchronized (sessionLock) {
+            if (session.get() != observed) return;
+            try {
+                System.out.println("    [刷新会话中...]");
+                HttpUtil.initSession();
+                String endpoint = detectEndpoint();
+                session.set(new SessionState(endpoint, observed.version + 1, false));
+                sessionRefreshCount.increment();
+                SessionStore.save(endpoint);
+            } catch (Exception e) {
+                // 刷新失败，继续用旧的接口，但不再当作待确认的恢复会话
+                session.set(new SessionState(observed.endpoint, observed.version + 1, false));
+            }
         }
+    }
 
-        totalRequests++;
+    /**
+     * 按服务器下发的 c_url 切换接口；其他线程已先切换时不重复切换
+     */
+    private void switchEndpoint(SessionState observed, String endpoint) {
+        if (session.compareAndSet(observed, new SessionState(endpoint, observed.version + 1, false))) {
+            System.out.println("    [接口已更新: " + endpoint + "]");
+            SessionStore.save(endpoint);
+        }
+    }
 
-        String url = BASE_URL + queryEndpoint
-                + "?leftTicketDTO.train_date=" + date
-                + "&leftTicketDTO.from_station=" + fromStationCode
-                + "&leftTicketDTO.to_station=" + toStationCode
-                + "&purpose_codes=ADULT";
+    /**
+     * 查询两站之间的余票（优先使用缓存）
+     */
+    public List<TrainInfo> queryTickets(String fromStationCode, String toStationCode, String date) throws IOException {
+        String key = fromStationCode + "|" + toStationCode + "|" + date;
+        CachedResult cached = cache.get(key);
+        if (cached != null && !cached.isExpired()) {
+            cacheHits.increment();
+            return unpack(cached.trains);
+        }
 
-        String response;
         try {
-            response = HttpUtil.get(url);
-        } catch (IOException e) {
-            // 网络错误，可能是限流导致连接被拒
-            return handleRateLimit(fromStationCode, toStationCode, date);
+            return flights.execute(key, () -> {
+                // 排队期间可能已有其他调用者写入缓存
+                CachedResult latest = cache.get(key);
+                if (latest != null && !latest.isExpired()) {
+                    cacheHits.increment();
+                    return unpack(latest.trains);
+                }
+                List<TrainInfo> result = doQueryTickets(fromStationCode, toStationCode, date);
+                if (!result.isEmpty()) {
+                    // 空结果可能是限流导致的，不缓存
+                    result = Collections.unmodifiableList(result);
+                    sweep();
+                    cache.put(key, new CachedResult(pack(result)));
+                    notifyObservers(fromStationCode, toStationCode, date, result);
+                }
+                return result;
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
         }
+    }
 
-        String trimmed = response.trim();
+    /**
+     * 移除已过期的缓存结果（写入缓存时调用，每分钟至多一次）
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweepAt < SWEEP_INTERVAL_MS) return;
+        lastSweepAt = now;
+        cache.values().removeIf(CachedResult::isExpired);
+    }
 
-        // 空响应
-        if (trimmed.isEmpty()) {
-            return handleRateLimit(fromStationCode, toStationCode, date);
-        }
+    /**
+     * 注册余票观察者
+     */
+    public void addObserver(TicketObserver observer) {
+        observers.add(observer);
+    }
 
-        // 非 JSON 响应 → 大概率是被限流了（返回了 HTML 页面）
-        if (!trimmed.startsWith("{")) {
-            return handleRateLimit(fromStationCode, toStationCode, date);
+    private void notifyObservers(String fromStationCode, String toStationCode, String date, List<TrainInfo> trains) {
+        long now = System.currentTimeMillis();
+        for (TicketObserver observer : observers) {
+            try {
+                observer.onTickets(fromStationCode, toStationCode, date, trains, now);
+            } catch (Exception e) {
+                System.err.println("余票观察者处理失败: " + e.getMessage());
+            }
         }
+    }
+
+    /**
+     * 设置是否在解析结果中保留原始数据串
+     */
+    public void setKeepRawData(boolean keepRawData) {
+        this.keepRawData = keepRawData;
+    }
 
-        // 成功拿到 JSON，重置限流计数
-        rateLimitCount = 0;
+    /**
+     * 被合并到其他调用者请求中的查询次数
+     */
+    public long getCoalescedCount() {
+        return flights.getSharedCount();
+    }
 
-        List<TrainInfo> result = parseResponse(response);
+    /**
+     * 命中缓存、未发起请求的查询次数
+     */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
 
-        // 检查是否需要更新 endpoint（c_url）
-        if (result.isEmpty() && response.contains("c_url")) {
-            try {
-                JsonObject root = JsonParser.parseString(response).getAsJsonObject();
-                if (root.has("c_url")) {
-                    String newUrl = root.get("c_url").getAsString();
-                    if (newUrl != null && !newUrl.isEmpty()) {
-                        if (newUrl.contains("/")) {
-                            queryEndpoint = newUrl.substring(newUrl.lastIndexOf("/") + 1);
-                        } else {
-                            queryEndpoint = newUrl;
-                        }
-                        System.out.println("    [接口已更新: " + queryEndpoint + "]");
-                        return queryTickets(fromStationCode, toStationCode, date);
-                    }
+    /**
+     * 实际发往12306的余票查询请求数（含重试）
+     */
+    public long getTotalRequests() {
+        return totalRequests.sum();
+    }
+
+    /**
+     * 请求被拒（限流）的次数
+     */
+    public long getRateLimitCount() {
+        return rateLimitCount.sum();
+    }
+
+    /**
+     * 会话刷新次数
+     */
+    public long getSessionRefreshCount() {
+        return sessionRefreshCount.sum();
+    }
+
+    /**
+     * 查询结果是否已在缓存中（不发起请求）
+     */
+    public boolean isCached(String fromStationCode, String toStationCode, String date) {
+        CachedResult cached = cache.get(fromStationCode + "|" + toStationCode + "|" + date);
+        return cached != null && !cached.isExpired();
+    }
+
+    /**
+     * 查询指定车次在某区段的余票，只在所需座席有票时返回
+     * 缓存中的结果直接比较紧凑记录的余票编码，只还原命中的那一个车次
+     *
+     * @param seatClasses 所需座席，为空表示任意座席
+     * @return 有票时返回该车次，无票、不设所需座席或车次不在结果中时返回 null
+     */
+    public TrainInfo findAvailableTrain(String fromStationCode, String toStationCode, String date,
+                                        String stationTrainCode, Set<SeatClass> seatClasses) throws IOException {
+        CachedResult cached = cache.get(fromStationCode + "|" + toStationCode + "|" + date);
+        if (cached == null || cached.isExpired()) {
+            for (TrainInfo train : queryTickets(fromStationCode, toStationCode, date)) {
+                if (train.getStationTrainCode().equals(stationTrainCode)) {
+                    return train.hasAvailableTicket(seatClasses) ? train : null;
                 }
-            } catch (Exception ignored) {}
+            }
+            return null;
         }
 
-        return result;
+        cacheHits.increment();
+        for (CompactTrain train : cached.trains) {
+            if (train.getStationTrainCode().equals(stationTrainCode)) {
+                return train.hasAvailableTicket(seatClasses) ? unpack(train) : null;
+            }
+        }
+        return null;
     }
 
     /**
-     * 处理限流：等待后重试，而不是盲目切换 endpoint
+     * 发起查询并处理被拒、会话失效和接口切换；以循环代替递归，各线程的重试状态互不影响
      */
-    private List<TrainInfo> handleRateLimit(String fromStationCode, String toStationCode, String date) {
-        rateLimitCount++;
+    private List<TrainInfo> doQueryTickets(String fromStationCode, String toStationCode, String date) throws IOException {
+        long[] waits = AppConfig.current().getRateLimitWaitsMs();
+        int rejected = 0;
+        int endpointSwitches = 0;
+
+        while (true) {
+            SessionState state = currentSession();
+            totalRequests.increment();
 
-        if (rateLimitCount <= 3) {
-            // 前3次：递增等待后重试同一 endpoint
-            long waitSeconds = rateLimitCount * 3L; // 3秒, 6秒, 9秒
-            System.out.println("    [被限流，等待" + waitSeconds + "秒后重试...]");
+            QueryResponse response;
             try {
-                Thread.sleep(waitSeconds * 1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                response = fetch(state.endpoint, fromStationCode, toStationCode, date);
+            } catch (IOException e) {
+                // 网络错误，可能是限流导致连接被拒
+                response = null;
             }
 
-            // 重试
-            try {
-                String url = BASE_URL + queryEndpoint
-                        + "?leftTicketDTO.train_date=" + date
-                        + "&leftTicketDTO.from_station=" + fromStationCode
-                        + "&leftTicketDTO.to_station=" + toStationCode
-                        + "&purpose_codes=ADULT";
-                String response = HttpUtil.get(url);
-                String trimmed = response.trim();
-                if (!trimmed.isEmpty() && trimmed.startsWith("{")) {
-                    rateLimitCount = 0;
-                    return parseResponse(response);
+            // 空响应或非 JSON 响应 → 大概率是被限流了（返回了 HTML 页面）
+            if (response == null) {
+                if (state.restored) {
+                    // 恢复的会话可能已失效，先重建会话再查
+                    System.out.println("    [本地会话已失效，重新初始化...]");
+                    refreshSession(state);
+                    continue;
                 }
-            } catch (Exception e) {
-                // 重试也失败了
+                rateLimitCount.increment();
+                rejected++;
+                if (rejected <= waits.length) {
+                    // 按配置的等待时间递增重试同一 endpoint（默认 3秒, 6秒, 9秒），而不是盲目切换 endpoint
+                    long waitMs = waits[rejected - 1];
+                    System.out.println("    [被限流，等待" + waitMs / 1000.0 + "秒后重试...]");
+                    try {
+                        Thread.sleep(waitMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return new ArrayList<>();
+                    }
+                    continue;
+                }
+                if (rejected == waits.length + 1) {
+                    // 等待重试用完后：刷新会话后重试
+                    refreshSession(state);
+                    continue;
+                }
+                // 超过重试次数，放弃本次查询
+                return new ArrayList<>();
             }
 
-            // 重试失败，递归继续
-            return handleRateLimit(fromStationCode, toStationCode, date);
-        }
+            // 成功拿到 JSON：恢复的会话得到确认
+            if (state.restored) {
+                session.compareAndSet(state, new SessionState(state.endpoint, state.version, false));
+            }
 
-        if (rateLimitCount == 4) {
-            // 第4次：刷新会话后重试
-            refreshSession();
-            try {
-                String url = BASE_URL + queryEndpoint
-                        + "?leftTicketDTO.train_date=" + date
-                        + "&leftTicketDTO.from_station=" + fromStationCode
-                        + "&leftTicketDTO.to_station=" + toStationCode
-                        + "&purpose_codes=ADULT";
-                String response = HttpUtil.get(url);
-                String trimmed = response.trim();
-                if (!trimmed.isEmpty() && trimmed.startsWith("{")) {
-                    rateLimitCount = 0;
-                    return parseResponse(response);
-                }
-            } catch (Exception e) {
-                // 刷新后重试也失败
+            // 检查是否需要更新 endpoint（c_url）
+            if (response.trains.isEmpty() && response.cUrl != null && !response.cUrl.isEmpty()
+                    && endpointSwitches < MAX_ENDPOINT_SWITCHES) {
+                endpointSwitches++;
+                switchEndpoint(state, endpointName(response.cUrl));
+                continue;
             }
+
+            return response.trains;
         }
+    }
 
-        // 超过重试次数，放弃本次查询
-        rateLimitCount = 0;
-        return new ArrayList<>();
+    /**
+     * 发起一次余票查询，响应以流的方式解析
+     *
+     * @return 解析结果；空响应或非 JSON 响应（被限流）返回 null
+     */
+    private QueryResponse fetch(String endpoint, String fromStationCode, String toStationCode, String date)
+            throws IOException {
+        String url = BASE_URL + endpoint
+                + "?leftTicketDTO.train_date=" + date
+                + "&leftTicketDTO.from_station=" + fromStationCode
+                + "&leftTicketDTO.to_station=" + toStationCode
+                + "&purpose_codes=ADULT";
+        return HttpUtil.getStream(url, this::readResponse);
     }
 
     /**
-     * 解析 12306 余票查询响应
+     * 流式解析 12306 余票查询响应，只保留 result 和 map，不构建完整的 JSON 树
      */
-    private List<TrainInfo> parseResponse(String response) {
-        List<TrainInfo> trains = new ArrayList<>();
+    private QueryResponse readResponse(Reader body) throws IOException {
+        BufferedReader in = new BufferedReader(body);
+
+        // 跳过前导空白，首字符不是 '{' 说明不是 JSON
+        int c;
+        do {
+            in.mark(1);
+            c = in.read();
+        } while (c != -1 && Character.isWhitespace(c));
+        if (c != '{') {
+            return null;
+        }
+        in.reset();
 
+        QueryResponse response = new QueryResponse();
+        List<String> records = new ArrayList<>();
+        Map<String, String> stationMap = new HashMap<>();
         try {
-            JsonObject root = JsonParser.parseString(response).getAsJsonObject();
-
-            if (root.has("status") && !root.get("status").getAsBoolean()) {
-                if (root.has("messages") && root.getAsJsonArray("messages").size() > 0) {
-                    System.err.println("12306 返回错误: " + root.getAsJsonArray("messages"));
+            JsonReader json = new JsonReader(in);
+            boolean status = true;
+            JsonElement messages = null;
+
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if ("status".equals(name) && json.peek() == JsonToken.BOOLEAN) {
+                    status = json.nextBoolean();
+                } else if ("messages".equals(name)) {
+                    messages = JsonParser.parseReader(json);
+                } else if ("c_url".equals(name) && json.peek() == JsonToken.STRING) {
+                    response.cUrl = json.nextString();
+                } else if ("data".equals(name) && json.peek() == JsonToken.BEGIN_OBJECT) {
+                    readData(json, records, stationMap);
+                } else {
+                    json.skipValue();
                 }
-                return trains;
             }
 
-            if (!root.has("data")) return trains;
-
-            JsonElement dataElement = root.get("data");
-            if (!dataElement.isJsonObject()) return trains;
-
-            JsonObject data = dataElement.getAsJsonObject();
-            if (!data.has("result")) return trains;
-
-            JsonObject stationMap = data.has("map") ? data.getAsJsonObject("map") : null;
-
-            JsonArray results = data.getAsJsonArray("result");
-            for (JsonElement element : results) {
-                String rawData = element.getAsString();
-                TrainInfo train = parseTrainData(rawData, stationMap);
-                if (train != null) {
-                    trains.add(train);
+            if (!status) {
+                if (messages != null && messages.isJsonArray() && messages.getAsJsonArray().size() > 0) {
+                    System.err.println("12306 返回错误: " + messages);
                 }
+                return response;
             }
         } catch (Exception e) {
             System.err.println("解析余票数据失败: " + e.getMessage());
-            if (response.length() > 200) {
-                System.err.println("响应内容(前200字符): " + response.substring(0, 200));
-            } else {
-                System.err.println("响应内容: " + response);
+            return response;
+        }
+
+        FieldCursor fields = new FieldCursor('|');
+        for (String rawData : records) {
+            TrainInfo train = parseTrainData(fields.reset(rawData), rawData, stationMap);
+            if (train != null) {
+                response.trains.add(train);
             }
         }
+        return response;
+    }
 
-        return trains;
+    /**
+     * 读取 data 对象中的 result（车次记录）和 map（电报码 -> 站名）
+     */
+    private void readData(JsonReader json, List<String> records, Map<String, String> stationMap) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("result".equals(name) && json.peek() == JsonToken.BEGIN_ARRAY) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    records.add(json.nextString());
+                }
+                json.endArray();
+            } else if ("map".equals(name) && json.peek() == JsonToken.BEGIN_OBJECT) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    stationMap.put(json.nextName(), json.nextString());
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
     }
 
     /**
-     * 解析单条车次数据
+     * 解析单条车次数据：只取用到的字段，secretStr 等其余字段不生成字符串
      */
-    private TrainInfo parseTrainData(String rawData, JsonObject stationMap) {
+    private TrainInfo parseTrainData(FieldCursor fields, String rawData, Map<String, String> stationMap) {
         try {
-            String[] fields = rawData.split("\\|");
-            if (fields.length < 35) return null;
+            if (fields.count() < 35) return null;
 
             TrainInfo train = new TrainInfo();
-            train.setRawData(rawData);
-            train.setTrainNo(fields[2]);
-            train.setStationTrainCode(fields[3]);
-            train.setFromStationCode(fields[6]);
-            train.setToStationCode(fields[7]);
-            train.setStartTime(fields[8]);
-            train.setArriveTime(fields[9]);
-            train.setDuration(fields[10]);
-
-            if (stationMap != null) {
-                if (stationMap.has(fields[6])) {
-                    train.setFromStationName(stationMap.get(fields[6]).getAsString());
-                }
-                if (stationMap.has(fields[7])) {
-                    train.setToStationName(stationMap.get(fields[7]).getAsString());
-                }
+            if (keepRawData) {
+                train.setRawData(rawData);
             }
+            String fromCode = fields.get(6);
+            String toCode = fields.get(7);
+            train.setTrainNo(fields.get(2));
+            train.setStationTrainCode(fields.get(3));
+            train.setFromStationCode(fromCode);
+            train.setToStationCode(toCode);
+            train.setFromStationNo(fields.get(16));
+            train.setToStationNo(fields.get(17));
+            train.setSeatTypes(fields.isEmpty(35) ? null : fields.get(35));
+            train.setStartTime(fields.get(8));
+            train.setArriveTime(fields.get(9));
+            train.setDuration(fields.get(10));
+
+            train.setFromStationName(stationMap.get(fromCode));
+            train.setToStationName(stationMap.get(toCode));
 
             // fields[4] 和 fields[5] 是始发站和终到站的电报码
-            train.setStartStationCode(fields[4]);
-            train.setEndStationCode(fields[5]);
+            String startCode = fields.get(4);
+            String endCode = fields.get(5);
+            train.setStartStationCode(startCode);
+            train.setEndStationCode(endCode);
 
-            Station startStation = stationService.getByCode(fields[4]);
-            train.setStartStationName(startStation != null ? startStation.getName() : fields[4]);
-            Station endStation = stationService.getByCode(fields[5]);
-            train.setEndStationName(endStation != null ? endStation.getName() : fields[5]);
+            Station startStation = stationService.getByCode(startCode);
+            train.setStartStationName(startStation != null ? startStation.getName() : startCode);
+            Station endStation = stationService.getByCode(endCode);
+            train.setEndStationName(endStation != null ? endStation.getName() : endCode);
 
             if (train.getFromStationName() == null) {
-                Station s = stationService.getByCode(fields[6]);
-                train.setFromStationName(s != null ? s.getName() : fields[6]);
+                Station s = stationService.getByCode(fromCode);
+                train.setFromStationName(s != null ? s.getName() : fromCode);
             }
             if (train.getToStationName() == null) {
-                Station s = stationService.getByCode(fields[7]);
-                train.setToStationName(s != null ? s.getName() : fields[7]);
+                Station s = stationService.getByCode(toCode);
+                train.setToStationName(s != null ? s.getName() : toCode);
             }
 
-            train.setBusinessSeat(getField(fields, 32));
-            train.setFirstClassSeat(getField(fields, 31));
-            train.setSecondClassSeat(getField(fields, 30));
-            train.setAdvancedSoftSleeper(getField(fields, 21));
-            train.setSoftSleeper(getField(fields, 23));
-            train.setMoveSleeper(getField(fields, 33));
-            train.setHardSleeper(getField(fields, 28));
-            train.setSoftSeat(getField(fields, 24));
-            train.setHardSeat(getField(fields, 29));
-            train.setNoSeat(getField(fields, 26));
-            train.setCanBook("Y".equals(fields[11]));
+            train.setBusinessSeat(getSeatField(fields, 32));
+            train.setFirstClassSeat(getSeatField(fields, 31));
+            train.setSecondClassSeat(getSeatField(fields, 30));
+            train.setAdvancedSoftSleeper(getSeatField(fields, 21));
+            train.setSoftSleeper(getSeatField(fields, 23));
+            train.setMoveSleeper(getSeatField(fields, 33));
+            train.setHardSleeper(getSeatField(fields, 28));
+            train.setSoftSeat(getSeatField(fields, 24));
+            train.setHardSeat(getSeatField(fields, 29));
+            train.setNoSeat(getSeatField(fields, 26));
+            train.setCanBook(fields.equalsTo(11, "Y"));
 
             return train;
         } catch (Exception e) {
@@ -333,10 +572,148 @@ public class TicketQueryService {
         }
     }
 
-    private String getField(String[] fields, int index) {
-        if (index < fields.length && fields[index] != null && !fields[index].isEmpty()) {
-            return fields[index];
+    /**
+     * 余票字段：空字段为 "--"，常见取值和张数复用共享字符串
+     */
+    private String getSeatField(FieldCursor fields, int index) {
+        if (fields.isEmpty(index)) {
+            return "--";
+        }
+        int count = fields.getInt(index, -1);
+        if (count >= 0 && count < SEAT_COUNTS.length && fields.equalsTo(index, SEAT_COUNTS[count])) {
+            return SEAT_COUNTS[count];
+        }
+        return fields.get(index, COMMON_SEAT_VALUES);
+    }
+
+    /**
+     * 转为紧凑格式：车站转编号、时刻转分钟、余票转字节编码
+     */
+    private CompactTrain[] pack(List<TrainInfo> trains) {
+        CompactTrain[] packed = new CompactTrain[trains.size()];
+        SeatClass[] seatClasses = SeatClass.values();
+        for (int i = 0; i < packed.length; i++) {
+            TrainInfo t = trains.get(i);
+            byte[] seats = new byte[seatClasses.length];
+            for (SeatClass seatClass : seatClasses) {
+                seats[seatClass.ordinal()] = SeatClass.encode(seatClass.valueOf(t));
+            }
+            packed[i] = new CompactTrain(
+                    t.getTrainNo().intern(),
+                    t.getStationTrainCode().intern(),
+                    stationService.stationId(t.getStartStationCode(), t.getStartStationName()),
+                    stationService.stationId(t.getEndStationCode(), t.getEndStationName()),
+                    stationService.stationId(t.getFromStationCode(), t.getFromStationName()),
+                    stationService.stationId(t.getToStationCode(), t.getToStationName()),
+                    parseStationNo(t.getFromStationNo()),
+                    parseStationNo(t.getToStationNo()),
+                    t.getSeatTypes() != null ? t.getSeatTypes().intern() : null,
+                    (short) TimeUtil.toMinutes(t.getStartTime()),
+                    (short) TimeUtil.toMinutes(t.getArriveTime()),
+                    (short) TimeUtil.toMinutes(t.getDuration()),
+                    seats,
+                    t.isCanBook());
+        }
+        return packed;
+    }
+
+    /**
+     * 从紧凑格式还原 TrainInfo（不含原始数据串）
+     */
+    private List<TrainInfo> unpack(CompactTrain[] packed) {
+        List<TrainInfo> trains = new ArrayList<>(packed.length);
+        for (CompactTrain c : packed) {
+            trains.add(unpack(c));
+        }
+        return Collections.unmodifiableList(trains);
+    }
+
+    private TrainInfo unpack(CompactTrain c) {
+        TrainInfo t = new TrainInfo();
+        t.setTrainNo(c.getTrainNo());
+        t.setStationTrainCode(c.getStationTrainCode());
+        t.setStartStationCode(stationService.stationCode(c.getStartStation()));
+        t.setStartStationName(stationService.stationName(c.getStartStation()));
+        t.setEndStationCode(stationService.stationCode(c.getEndStation()));
+        t.setEndStationName(stationService.stationName(c.getEndStation()));
+        t.setFromStationCode(stationService.stationCode(c.getFromStation()));
+        t.setFromStationName(stationService.stationName(c.getFromStation()));
+        t.setToStationCode(stationService.stationCode(c.getToStation()));
+        t.setToStationName(stationService.stationName(c.getToStation()));
+        t.setFromStationNo(formatStationNo(c.getFromStationNo()));
+        t.setToStationNo(formatStationNo(c.getToStationNo()));
+        t.setSeatTypes(c.getSeatTypes());
+        t.setStartTime(formatTime(c.getStartTime()));
+        t.setArriveTime(formatTime(c.getArriveTime()));
+        t.setDuration(formatTime(c.getDuration()));
+        t.setBusinessSeat(SeatClass.decode(c.getSeat(SeatClass.BUSINESS)));
+        t.setFirstClassSeat(SeatClass.decode(c.getSeat(SeatClass.FIRST_CLASS)));
+        t.setSecondClassSeat(SeatClass.decode(c.getSeat(SeatClass.SECOND_CLASS)));
+        t.setAdvancedSoftSleeper(SeatClass.decode(c.getSeat(SeatClass.ADVANCED_SOFT_SLEEPER)));
+        t.setSoftSleeper(SeatClass.decode(c.getSeat(SeatClass.SOFT_SLEEPER)));
+        t.setMoveSleeper(SeatClass.decode(c.getSeat(SeatClass.MOVE_SLEEPER)));
+        t.setHardSleeper(SeatClass.decode(c.getSeat(SeatClass.HARD_SLEEPER)));
+        t.setSoftSeat(SeatClass.decode(c.getSeat(SeatClass.SOFT_SEAT)));
+        t.setHardSeat(SeatClass.decode(c.getSeat(SeatClass.HARD_SEAT)));
+        t.setNoSeat(SeatClass.decode(c.getSeat(SeatClass.NO_SEAT)));
+        t.setCanBook(c.isCanBook());
+        return t;
+    }
+
+    private byte parseStationNo(String stationNo) {
+        try {
+            int no = Integer.parseInt(stationNo);
+            return no > 0 && no <= Byte.MAX_VALUE ? (byte) no : 0;
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+
+    private String formatStationNo(byte stationNo) {
+        return stationNo > 0 ? String.format("%02d", stationNo) : null;
+    }
+
+    /**
+     * 分钟数还原为 "HH:mm"（不按24小时取模，停运车次的 "24:00" 等原样还原）
+     */
+    private String formatTime(short minutes) {
+        return minutes < 0 ? "--" : TimeUtil.formatDuration(minutes);
+    }
+
+    private static class CachedResult {
+        final CompactTrain[] trains;
+        final long createdAt = System.currentTimeMillis();
+
+        CachedResult(CompactTrain[] trains) {
+            this.trains = trains;
+        }
+
+        boolean isExpired() {
+            // 余票变化较快，默认只在一次分析过程中复用
+            return System.currentTimeMillis() - createdAt > AppConfig.current().getTicketCacheTtlMs();
+        }
+    }
+
+    /**
+     * 一次余票查询的解析结果
+     */
+    private static class QueryResponse {
+        final List<TrainInfo> trains = new ArrayList<>();
+        String cUrl;
+    }
+
+    /**
+     * 会话状态：查询接口和版本号，restored 表示从本地快照恢复、尚未被服务器确认有效
+     */
+    private static class SessionState {
+        final String endpoint;
+        final long version;
+        final boolean restored;
+
+        SessionState(String endpoint, long version, boolean restored) {
+            this.endpoint = endpoint;
+            this.version = version;
+            this.restored = restored;
         }
-        return "--";
     }
 }
@@ -4,12 +4,25 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.ticket.model.TrainInfo;
 import com.ticket.model.TrainStop;
 import com.ticket.util.HttpUtil;
+import com.ticket.util.SingleFlight;
+import com.ticket.util.TimeUtil;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 车次路线查询服务 - 查询车次的完整经停站信息
@@ -18,6 +31,30 @@ public class TrainRouteService {
 
     private static final String ROUTE_URL = "https://kyfw.12306.cn/otn/czxx/queryByTrainNo";
 
+    /** 批量查询的并行线程数（实际并发另受单主机并发许可限制） */
+    private static final int PARALLELISM = 4;
+
+    /** 两次清理缓存的最小间隔 */
+    private static final long SWEEP_INTERVAL_MS = 60_000;
+
+    /** 经停站缓存：trainNo|date -> 经停站列表（同一车次当天的经停站不会变化） */
+    private final Map<String, List<TrainStop>> routeCache = new ConcurrentHashMap<>();
+
+    /** 上次清理经停站缓存的时间 */
+    private volatile long lastSweepAt;
+
+    /** 同一车次同一天的并发查询合并为一次请求 */
+    private final SingleFlight<String, List<TrainStop>> flights = new SingleFlight<>();
+
+    /** 命中经停站缓存、未发起请求的查询次数 */
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM, r -> {
+        Thread t = new Thread(r, "route-lookup");
+        t.setDaemon(true);
+        return t;
+    });
+
     /**
      * 查询车次的完整经停路线
      *
@@ -28,24 +65,127 @@ public class TrainRouteService {
      * @return 经停站列表（按站序排列）
      */
     public List<TrainStop> queryRoute(String trainNo, String fromStationCode, String toStationCode, String date) throws IOException {
-        String url = ROUTE_URL
-                + "?train_no=" + trainNo
-                + "&from_station_telecode=" + fromStationCode
-                + "&to_station_telecode=" + toStationCode
-                + "&depart_date=" + date;
-
-        String response = HttpUtil.get(url);
-        return parseResponse(response);
+        List<TrainStop> cached = getCachedRoute(trainNo, date);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+
+        String key = routeKey(trainNo, date);
+        try {
+            return flights.execute(key, () -> {
+                List<TrainStop> latest = routeCache.get(key);
+                if (latest != null) {
+                    cacheHits.increment();
+                    return latest;
+                }
+                String url = ROUTE_URL
+                        + "?train_no=" + trainNo
+                        + "&from_station_telecode=" + fromStationCode
+                        + "&to_station_telecode=" + toStationCode
+                        + "&depart_date=" + date;
+
+                List<TrainStop> stops = HttpUtil.getStream(url, this::parseResponse);
+                if (!stops.isEmpty()) {
+                    stops = Collections.unmodifiableList(stops);
+                    sweep();
+                    routeCache.put(key, stops);
+                }
+                return stops;
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 批量查询一组车次的经停站：已缓存的直接返回，其余按列表顺序取前 maxLookups 个并行查询，全部完成后返回
+     *
+     * @param trains     车次（余票查询结果，需带始发站和终到站电报码），同一车次只查一次
+     * @param date       出发日期 (yyyy-MM-dd)
+     * @param maxLookups 最多新发起的查询数（缓存命中不计）
+     * @return trainNo -> 经停站，按列表顺序；查询失败的车次对应空列表，超出额度未查的车次不在结果中
+     */
+    public Map<String, List<TrainStop>> queryRoutes(List<TrainInfo> trains, String date, int maxLookups) {
+        Map<String, List<TrainStop>> routes = new LinkedHashMap<>();
+        Map<String, Future<List<TrainStop>>> pending = new LinkedHashMap<>();
+        for (TrainInfo train : trains) {
+            String trainNo = train.getTrainNo();
+            if (routes.containsKey(trainNo) || pending.containsKey(trainNo)) continue;
+
+            List<TrainStop> cached = getCachedRoute(trainNo, date);
+            if (cached != null) {
+                cacheHits.increment();
+                routes.put(trainNo, cached);
+            } else if (pending.size() < maxLookups) {
+                // 先占位，保持结果与列表顺序一致
+                routes.put(trainNo, null);
+                pending.put(trainNo, executor.submit(() -> queryRoute(
+                        trainNo, train.getStartStationCode(), train.getEndStationCode(), date)));
+            }
+        }
+
+        for (Map.Entry<String, Future<List<TrainStop>>> entry : pending.entrySet()) {
+            List<TrainStop> route;
+            try {
+                route = entry.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                route = Collections.emptyList();
+            } catch (ExecutionException e) {
+                // 单个车次查询失败，按无经停站处理
+                route = Collections.emptyList();
+            }
+            routes.put(entry.getKey(), route);
+        }
+        return routes;
+    }
+
+    /**
+     * 被合并到其他调用者请求中的查询次数
+     */
+    public long getCoalescedCount() {
+        return flights.getSharedCount();
+    }
+
+    /**
+     * 命中缓存、未发起请求的查询次数
+     */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * 获取已缓存的经停站，未缓存返回 null（不发起请求）
+     */
+    public List<TrainStop> getCachedRoute(String trainNo, String date) {
+        return routeCache.get(routeKey(trainNo, date));
+    }
+
+    /**
+     * 移除出发日期已过的经停站（写入缓存时调用，每分钟至多一次）
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweepAt < SWEEP_INTERVAL_MS) return;
+        lastSweepAt = now;
+        routeCache.keySet().removeIf(key -> TimeUtil.isPastDate(key.substring(key.lastIndexOf('|') + 1)));
+    }
+
+    private String routeKey(String trainNo, String date) {
+        return trainNo + "|" + date;
     }
 
     /**
      * 解析经停站响应数据
      */
-    private List<TrainStop> parseResponse(String response) {
+    private List<TrainStop> parseResponse(Reader response) {
         List<TrainStop> stops = new ArrayList<>();
 
         try {
-            JsonObject root = JsonParser.parseString(response).getAsJsonObject();
+            JsonObject root = JsonParser.parseReader(response).getAsJsonObject();
 
             if (!root.has("data")) {
                 return stops;
@@ -114,6 +254,26 @@ public class TrainRouteService {
         return result;
     }
 
+    /**
+     * 在经停站列表中查找指定站点的下标，匹配规则与 {@link #getStopsAfter} 相同
+     *
+     * @return 站点下标，未找到返回 -1
+     */
+    public int indexOfStop(List<TrainStop> stops, String stationName, String stationCode) {
+        for (int i = 0; i < stops.size(); i++) {
+            TrainStop stop = stops.get(i);
+            if (stationCode != null && stationCode.equals(stop.getStationCode())) {
+                return i;
+            }
+            if (stop.getStationName().equals(stationName)
+                    || stop.getStationName().startsWith(stationName)
+                    || stationName.startsWith(stop.getStationName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private String getString(JsonObject obj, String key) {
         if (obj.has(key) && !obj.get(key).isJsonNull()) {
             return obj.get(key).getAsString();
@@ -0,0 +1,243 @@
+package com.ticket.service;
+
+import com.ticket.model.SeatClass;
+import com.ticket.model.Station;
+import com.ticket.model.TrainInfo;
+import com.ticket.model.TrainStop;
+import com.ticket.model.TransferItinerary;
+import com.ticket.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * 中转方案搜索服务 - 直达和买长乘短都无票时，寻找经中转站换乘的一次中转方案
+ *
+ * 候选中转站取自直达车次在出发站与目的地之间的经停站（优先使用已缓存的经停站数据），
+ * 按经停车次数排序后只保留最热门的几个站，两程余票并行查询。
+ */
+public class TransferSearchService {
+
+    /** 同站换乘最短时间（分钟） */
+    private static final int MIN_CONNECT_SAME_STATION = 20;
+
+    /** 同城异站换乘最短时间（分钟），需要预留市内交通时间 */
+    private static final int MIN_CONNECT_CROSS_STATION = 60;
+
+    /** 最长换乘等待时间（分钟） */
+    private static final int MAX_CONNECT_MINUTES = 6 * 60;
+
+    /** 提取中转站时最多额外查询的经停站数（已缓存的不计） */
+    private static final int MAX_ROUTE_LOOKUPS = 6;
+
+    /** 候选中转站数量上限 */
+    private static final int MAX_HUBS = 6;
+
+    /** 最多返回的方案数 */
+    private static final int MAX_RESULTS = 10;
+
+    /** 并行查询线程数 */
+    private static final int PARALLELISM = 4;
+
+    private final StationService stationService;
+    private final TicketQueryService ticketQueryService;
+    private final TrainRouteService trainRouteService;
+    private final ExecutorService executor;
+
+    public TransferSearchService(StationService stationService,
+                                 TicketQueryService ticketQueryService,
+                                 TrainRouteService trainRouteService) {
+        this.stationService = stationService;
+        this.ticketQueryService = ticketQueryService;
+        this.trainRouteService = trainRouteService;
+        this.executor = Executors.newFixedThreadPool(PARALLELISM, r -> {
+            Thread t = new Thread(r, "transfer-search");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 搜索一次中转方案
+     *
+     * @param fromStation  出发站
+     * @param toStation    目的站
+     * @param date         出发日期 (yyyy-MM-dd)
+     * @param directTrains 直达查询结果（用于提取候选中转站）
+     * @param seatClasses  所需座席，为空表示任意座席；两程都须有所需座席的票
+     * @return 按全程耗时排序的中转方案
+     */
+    public List<TransferItinerary> search(Station fromStation, Station toStation, String date,
+                                          List<TrainInfo> directTrains, Set<SeatClass> seatClasses) {
+        List<Station> hubs = selectHubs(fromStation, toStation, date, directTrains);
+        if (hubs.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 所有中转站的两程余票一次性并行提交
+        Map<Station, Future<List<TrainInfo>>> firstFutures = new LinkedHashMap<>();
+        Map<Station, Future<List<TrainInfo>>> secondFutures = new LinkedHashMap<>();
+        for (Station hub : hubs) {
+            firstFutures.put(hub, submitQuery(fromStation.getCode(), hub.getCode(), date));
+            secondFutures.put(hub, submitQuery(hub.getCode(), toStation.getCode(), date));
+        }
+
+        List<TransferItinerary> itineraries = new ArrayList<>();
+        Map<Station, List<TrainInfo>> overnightFirstLegs = new LinkedHashMap<>();
+        Map<Station, Future<List<TrainInfo>>> nextDayFutures = new LinkedHashMap<>();
+        String nextDate = TimeUtil.plusDays(date, 1);
+
+        for (Station hub : hubs) {
+            List<TrainInfo> firstLegs = available(await(firstFutures.get(hub)), seatClasses);
+            if (firstLegs.isEmpty()) {
+                continue;
+            }
+            List<TrainInfo> secondLegs = available(await(secondFutures.get(hub)), seatClasses);
+            combine(firstLegs, secondLegs, date, 0, itineraries);
+
+            // 第一程到达后的最长换乘时间跨过零点的（包括深夜到达和次日到达），第二程还要查次日的票
+            if (firstLegs.stream().anyMatch(t -> arriveMinutes(t) + MAX_CONNECT_MINUTES >= 24 * 60)) {
+                overnightFirstLegs.put(hub, firstLegs);
+                nextDayFutures.put(hub, submitQuery(hub.getCode(), toStation.getCode(), nextDate));
+            }
+        }
+
+        for (Map.Entry<Station, List<TrainInfo>> entry : overnightFirstLegs.entrySet()) {
+            List<TrainInfo> secondLegs = available(await(nextDayFutures.get(entry.getKey())), seatClasses);
+            combine(entry.getValue(), secondLegs, nextDate, 24 * 60, itineraries);
+        }
+
+        return itineraries.stream()
+                .sorted(Comparator.comparingInt(TransferItinerary::getTotalMinutes)
+                        .thenComparingInt(TransferItinerary::getConnectMinutes))
+                .limit(MAX_RESULTS)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 从直达车次的经停站中选出候选中转站
+     * 已缓存经停站的车次不产生请求，其余车次最多并行查询 MAX_ROUTE_LOOKUPS 个
+     */
+    private List<Station> selectHubs(Station fromStation, Station toStation, String date,
+                                     List<TrainInfo> directTrains) {
+        Map<String, List<TrainStop>> found = trainRouteService.queryRoutes(directTrains, date, MAX_ROUTE_LOOKUPS);
+        List<List<TrainStop>> routes = new ArrayList<>();
+        List<TrainInfo> routeTrains = new ArrayList<>();
+        for (TrainInfo train : directTrains) {
+            List<TrainStop> route = found.remove(train.getTrainNo());
+            if (route != null && !route.isEmpty()) {
+                routes.add(route);
+                routeTrains.add(train);
+            }
+        }
+
+        // 统计每个中间站被多少车次经停
+        Map<String, Integer> stopCount = new HashMap<>();
+        Map<String, String> stopCodes = new HashMap<>();
+        for (int r = 0; r < routes.size(); r++) {
+            List<TrainStop> route = routes.get(r);
+            TrainInfo train = routeTrains.get(r);
+            int fromIdx = trainRouteService.indexOfStop(route, fromStation.getName(), train.getFromStationCode());
+            int toIdx = trainRouteService.indexOfStop(route, toStation.getName(), train.getToStationCode());
+            if (fromIdx < 0 || toIdx <= fromIdx) continue;
+
+            for (int i = fromIdx + 1; i < toIdx; i++) {
+                TrainStop stop = route.get(i);
+                String name = stop.getStationName();
+                if (stationService.isSameCity(name, fromStation.getName())
+                        || stationService.isSameCity(name, toStation.getName())) {
+                    continue;
+                }
+                stopCount.merge(name, 1, Integer::sum);
+                if (stop.getStationCode() != null && !stop.getStationCode().isEmpty()) {
+                    stopCodes.put(name, stop.getStationCode());
+                }
+            }
+        }
+
+        List<Station> hubs = new ArrayList<>();
+        stopCount.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(e -> {
+                    if (hubs.size() >= MAX_HUBS) return;
+                    String code = stopCodes.get(e.getKey());
+                    Station station = code != null ? stationService.getByCode(code) : null;
+                    if (station == null) {
+                        station = stationService.getByName(e.getKey());
+                    }
+                    if (station != null && !hubs.contains(station)) {
+                        hubs.add(station);
+                    }
+                });
+        return hubs;
+    }
+
+    /**
+     * 组合两程车次，满足最短换乘时间和同城换乘规则的加入结果
+     *
+     * @param dayOffset 第二程相对第一程出发日的分钟偏移（次日为 1440）
+     */
+    private void combine(List<TrainInfo> firstLegs, List<TrainInfo> secondLegs, String secondLegDate,
+                         int dayOffset, List<TransferItinerary> out) {
+        for (TrainInfo first : firstLegs) {
+            int depart = TimeUtil.toMinutes(first.getStartTime());
+            int arrive = arriveMinutes(first);
+            if (depart < 0 || arrive < 0) continue;
+
+            for (TrainInfo second : secondLegs) {
+                if (second.getStationTrainCode().equals(first.getStationTrainCode())) continue;
+                if (!stationService.isSameCity(first.getToStationName(), second.getFromStationName())) continue;
+
+                boolean crossStation = !first.getToStationName().equals(second.getFromStationName());
+                int secondDepart = TimeUtil.toMinutes(second.getStartTime());
+                int secondDuration = TimeUtil.toMinutes(second.getDuration());
+                if (secondDepart < 0 || secondDuration < 0) continue;
+
+                int connect = secondDepart + dayOffset - arrive;
+                int minConnect = crossStation ? MIN_CONNECT_CROSS_STATION : MIN_CONNECT_SAME_STATION;
+                if (connect < minConnect || connect > MAX_CONNECT_MINUTES) continue;
+
+                int total = secondDepart + dayOffset + secondDuration - depart;
+                out.add(new TransferItinerary(first, second, secondLegDate, connect, total, crossStation));
+            }
+        }
+    }
+
+    /**
+     * 到达时间（相对出发日零点的分钟数，次日到达会超过1440）
+     */
+    private int arriveMinutes(TrainInfo train) {
+        int depart = TimeUtil.toMinutes(train.getStartTime());
+        int duration = TimeUtil.toMinutes(train.getDuration());
+        if (depart < 0 || duration < 0) return -1;
+        return depart + duration;
+    }
+
+    private Future<List<TrainInfo>> submitQuery(String fromCode, String toCode, String date) {
+        return executor.submit(() -> ticketQueryService.queryTickets(fromCode, toCode, date));
+    }
+
+    private List<TrainInfo> available(List<TrainInfo> trains, Set<SeatClass> seatClasses) {
+        return trains.stream().filter(t -> t.hasAvailableTicket(seatClasses)).collect(Collectors.toList());
+    }
+
+    private <T> List<T> await(Future<List<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 单个查询失败不影响其他中转站
+        }
+        return new ArrayList<>();
+    }
+}
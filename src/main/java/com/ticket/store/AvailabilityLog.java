@@ -0,0 +1,507 @@
+package com.ticket.store;
+
+import com.ticket.model.Observation;
+import com.ticket.model.SeatClass;
+import com.ticket.model.TrainInfo;
+import com.ticket.service.TicketObserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 余票历史日志 - 将每次查询解析出的余票以定长二进制记录追加写入磁盘
+ *
+ * 查询线程只把结果放入有界队列（队列满时丢弃并计数），由后台线程编码写入内存映射的分段文件。
+ * 分段写满后封存，封存分段达到 {@link #COMPACT_SEGMENTS} 个时（包括打开日志时）合并压缩：
+ * 丢弃出发日期已过的记录，以及与同一车次同一区段上一条记录余票完全相同、且在同一小时内的记录
+ * （每个车次每小时至少保留一条，按小时统计的观测数在压缩前后不变）。
+ * 写入中的分段始终保持预分配长度，有效记录以序号非零为准；重新打开时继续写入最后一个未写满的分段，
+ * 不截断仍被映射的文件（Windows 上会失败）。
+ *
+ * <pre>
+ * 分段文件: segment-000001.log
+ * 文件头:   magic(4) recordSize(4)
+ * 记录:     seq(8) timestamp(8) epochDay(4) from(3) to(3) trainCode(8) seats(10) = 44 字节
+ * </pre>
+ */
+public class AvailabilityLog implements TicketObserver, Closeable {
+
+    /** 默认日志目录（相对于工作目录） */
+    public static final String DEFAULT_DIR = "history";
+
+    private static final int MAGIC = 0x54484C31;
+    private static final int HEADER_SIZE = 8;
+    private static final int CODE_LENGTH = 3;
+    private static final int TRAIN_CODE_LENGTH = 8;
+    private static final int SEAT_COUNT = SeatClass.values().length;
+    private static final int RECORD_SIZE = 8 + 8 + 4 + CODE_LENGTH * 2 + TRAIN_CODE_LENGTH + SEAT_COUNT;
+
+    /** 每个分段的默认记录数（约 4MB） */
+    private static final int SEGMENT_RECORDS = (4 << 20) / RECORD_SIZE;
+
+    private static final long HOUR_MS = 60 * 60_000;
+
+    /** 封存分段达到此数量时合并压缩 */
+    private static final int COMPACT_SEGMENTS = 4;
+
+    /** 待写入队列容量（按查询结果计） */
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /** 通知写线程退出 */
+    private static final Batch END = new Batch(null, null, null, null, 0);
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /** 读取时持读锁，分段封存和压缩替换文件时持写锁 */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> sealed = new ArrayList<>();
+    private volatile Segment active;
+    private long nextSeq = 1;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AvailabilityLog() throws IOException {
+        this(Paths.get(DEFAULT_DIR));
+    }
+
+    public AvailabilityLog(Path dir) throws IOException {
+        this(dir, SEGMENT_RECORDS);
+    }
+
+    /**
+     * 打开（或创建）日志目录：最后一个未写满的分段继续写入，其余分段封存，封存分段过多时先压缩
+     *
+     * @param segmentRecords 每个分段的记录数
+     */
+    AvailabilityLog(Path dir, int segmentRecords) throws IOException {
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(dir);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        int lastNumber = 0;
+        Segment reopened = null;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            Segment segment = openSealed(file);
+            lastNumber = segment.number;
+            if (segment.count > 0) {
+                nextSeq = segment.lastSeq + 1;
+            }
+            if (i == files.size() - 1 && Files.size(file) == segmentSize() && segment.count < segmentRecords) {
+                reopened = reopenActive(segment);
+            } else if (segment.count > 0) {
+                sealed.add(segment);
+            } else {
+                Files.delete(file);
+            }
+        }
+        active = reopened != null ? reopened : createActive(lastNumber + 1);
+        if (sealed.size() >= COMPACT_SEGMENTS) {
+            compact();
+        }
+
+        writer = new Thread(this::writeLoop, "availability-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void onTickets(String fromStationCode, String toStationCode, String date,
+                          List<TrainInfo> trains, long timestamp) {
+        if (closed || !queue.offer(new Batch(fromStationCode, toStationCode, date, trains, timestamp))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 按序号顺序遍历 afterSeq 之后的所有记录
+     *
+     * @return 最后一条遍历到的记录序号（没有新记录时返回 afterSeq），下次从这里继续
+     */
+    public long scan(long afterSeq, Consumer<Observation> visitor) throws IOException {
+        long last = afterSeq;
+        lock.readLock().lock();
+        try {
+            for (Segment segment : sealed) {
+                if (segment.lastSeq <= afterSeq) continue;
+                // 读入堆内存而不映射：封存分段压缩后会被删除，映射要到 GC 时才释放
+                last = scanBuffer(read(segment.path), segment.count, afterSeq, last, visitor);
+            }
+            Segment current = active;
+            last = scanBuffer(current.buffer.duplicate(), current.count, afterSeq, last, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return last;
+    }
+
+    /**
+     * 查询某区段某日期的观测记录
+     *
+     * @param stationTrainCode 车次代码，为 null 时返回该区段所有车次
+     */
+    public List<Observation> query(String fromStationCode, String toStationCode, String date,
+                                   String stationTrainCode) throws IOException {
+        List<Observation> result = new ArrayList<>();
+        scan(0, observation -> {
+            if (observation.getFromStationCode().equals(fromStationCode)
+                    && observation.getToStationCode().equals(toStationCode)
+                    && observation.getDate().equals(date)
+                    && (stationTrainCode == null || observation.getStationTrainCode().equals(stationTrainCode))) {
+                result.add(observation);
+            }
+        });
+        return result;
+    }
+
+    /** 已写入的记录数 */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /** 因队列满或已关闭而丢弃的查询结果数 */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return sealed.size() + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写完队列中剩余的结果后关闭；当前分段刷盘但不截断，下次打开时继续写入
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        active.buffer.force();
+    }
+
+    // ==================== 写入 ====================
+
+    private void writeLoop() {
+        while (true) {
+            Batch batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch == END) return;
+            write(batch);
+        }
+    }
+
+    private void write(Batch batch) {
+        int epochDay;
+        try {
+            epochDay = (int) LocalDate.parse(batch.date).toEpochDay();
+        } catch (Exception e) {
+            return;
+        }
+        try {
+            for (TrainInfo train : batch.trains) {
+                Segment current = active;
+                if (current.count >= segmentRecords) {
+                    roll();
+                    current = active;
+                }
+                int pos = HEADER_SIZE + current.count * RECORD_SIZE;
+                ByteBuffer buffer = current.buffer;
+                buffer.putLong(pos, nextSeq);
+                buffer.putLong(pos + 8, batch.timestamp);
+                buffer.putInt(pos + 16, epochDay);
+                putAscii(buffer, pos + 20, batch.fromStationCode, CODE_LENGTH);
+                putAscii(buffer, pos + 23, batch.toStationCode, CODE_LENGTH);
+                putAscii(buffer, pos + 26, train.getStationTrainCode(), TRAIN_CODE_LENGTH);
+                for (SeatClass seatClass : SeatClass.values()) {
+                    buffer.put(pos + 34 + seatClass.ordinal(), SeatClass.encode(seatClass.valueOf(train)));
+                }
+                current.lastSeq = nextSeq++;
+                // count 为 volatile，读线程看到新的 count 时记录内容一定已写入
+                current.count++;
+                written.incrementAndGet();
+            }
+        } catch (IOException e) {
+            System.err.println("余票历史写入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 封存写满的分段并新建分段，必要时合并压缩
+     */
+    private void roll() throws IOException {
+        Segment full = active;
+        full.buffer.force();
+        Segment next = createActive(full.number + 1);
+        Segment sealedFull = new Segment(full.number, full.path, null);
+        sealedFull.count = full.count;
+        sealedFull.lastSeq = full.lastSeq;
+        lock.writeLock().lock();
+        try {
+            sealed.add(sealedFull);
+            active = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sealed.size() >= COMPACT_SEGMENTS) {
+            compact();
+        }
+    }
+
+    /**
+     * 将所有封存分段合并为一个：去掉已过出发日期的记录，以及同一小时内余票未变化的重复记录
+     * 只有写线程修改分段，压缩过程不阻塞读取，仅在替换文件时短暂持有写锁
+     */
+    private void compact() throws IOException {
+        List<Segment> sources = new ArrayList<>(sealed);
+        int today = (int) LocalDate.now().toEpochDay();
+        Map<String, byte[]> lastSeats = new HashMap<>();
+        Map<String, Long> lastHours = new HashMap<>();
+        Segment first = sources.get(0);
+        Path tmp = dir.resolve(first.path.getFileName() + ".tmp");
+
+        int kept = 0;
+        long lastSeq = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(header());
+            byte[] record = new byte[RECORD_SIZE];
+            for (Segment segment : sources) {
+                // 读入堆内存而不映射，源文件随后要删除
+                ByteBuffer buffer = read(segment.path);
+                for (int i = 0; i < segment.count; i++) {
+                    int pos = HEADER_SIZE + i * RECORD_SIZE;
+                    if (buffer.getInt(pos + 16) < today) continue;
+
+                    buffer.get(pos, record);
+                    String key = new String(record, 16, 4 + CODE_LENGTH * 2 + TRAIN_CODE_LENGTH,
+                            StandardCharsets.ISO_8859_1);
+                    byte[] seats = Arrays.copyOfRange(record, 34, 34 + SEAT_COUNT);
+                    long hour = buffer.getLong(pos + 8) / HOUR_MS;
+                    boolean unchanged = Arrays.equals(seats, lastSeats.put(key, seats));
+                    Long previousHour = lastHours.put(key, hour);
+                    if (unchanged && previousHour != null && previousHour == hour) continue;
+
+                    out.write(ByteBuffer.wrap(record));
+                    kept++;
+                    lastSeq = buffer.getLong(pos);
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            sealed.clear();
+            if (kept > 0) {
+                Files.move(tmp, first.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Segment compacted = new Segment(first.number, first.path, null);
+                compacted.count = kept;
+                compacted.lastSeq = lastSeq;
+                sealed.add(compacted);
+            } else {
+                Files.delete(tmp);
+                Files.delete(first.path);
+            }
+            for (int i = 1; i < sources.size(); i++) {
+                Files.delete(sources.get(i).path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== 分段文件 ====================
+
+    private long segmentSize() {
+        return HEADER_SIZE + (long) segmentRecords * RECORD_SIZE;
+    }
+
+    private Segment createActive(int number) throws IOException {
+        Path path = dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize());
+            buffer.put(0, header(), 0, HEADER_SIZE);
+            return new Segment(number, path, buffer);
+        }
+    }
+
+    /**
+     * 重新映射上次未写满的分段，从第 count 条记录处继续写入
+     */
+    private Segment reopenActive(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize());
+            Segment reopened = new Segment(segment.number, segment.path, buffer);
+            reopened.count = segment.count;
+            reopened.lastSeq = segment.lastSeq;
+            return reopened;
+        }
+    }
+
+    /**
+     * 打开已有分段并统计有效记录；写入中的分段末尾是全零记录，读取时按 count 跳过，文件不截断
+     */
+    private Segment openSealed(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        int number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        Segment segment = new Segment(number, path, null);
+        ByteBuffer buffer = read(path);
+        if (buffer.capacity() < HEADER_SIZE) {
+            return segment;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_SIZE) {
+            throw new IOException("余票历史文件格式不匹配: " + path);
+        }
+        int capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        int count = 0;
+        while (count < capacity && buffer.getLong(HEADER_SIZE + count * RECORD_SIZE) != 0) {
+            count++;
+        }
+        segment.count = count;
+        if (count > 0) {
+            segment.lastSeq = buffer.getLong(HEADER_SIZE + (count - 1) * RECORD_SIZE);
+        }
+        return segment;
+    }
+
+    /**
+     * 将整个分段文件读入堆内存（不映射，不影响之后删除或替换文件）
+     */
+    private static ByteBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            return buffer.clear();
+        }
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(RECORD_SIZE).flip();
+        return header;
+    }
+
+    private static long scanBuffer(ByteBuffer buffer, int count, long afterSeq, long last,
+                                   Consumer<Observation> visitor) {
+        for (int i = 0; i < count; i++) {
+            int pos = HEADER_SIZE + i * RECORD_SIZE;
+            long seq = buffer.getLong(pos);
+            if (seq <= afterSeq) continue;
+            byte[] seats = new byte[SEAT_COUNT];
+            buffer.get(pos + 34, seats);
+            visitor.accept(new Observation(seq,
+                    buffer.getLong(pos + 8),
+                    getAscii(buffer, pos + 20, CODE_LENGTH),
+                    getAscii(buffer, pos + 23, CODE_LENGTH),
+                    LocalDate.ofEpochDay(buffer.getInt(pos + 16)).toString(),
+                    getAscii(buffer, pos + 26, TRAIN_CODE_LENGTH),
+                    seats));
+            last = seq;
+        }
+        return last;
+    }
+
+    private static void putAscii(ByteBuffer buffer, int pos, String value, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.put(pos + i, i < value.length() ? (byte) value.charAt(i) : 0);
+        }
+    }
+
+    private static String getAscii(ByteBuffer buffer, int pos, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(pos + i);
+            if (b == 0) break;
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 分段文件；buffer 仅当前写入分段持有
+     */
+    private static class Segment {
+        final int number;
+        final Path path;
+        final MappedByteBuffer buffer;
+        volatile int count;
+        volatile long lastSeq;
+
+        Segment(int number, Path path, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * 一次查询结果，由写线程编码
+     */
+    private static class Batch {
+        final String fromStationCode;
+        final String toStationCode;
+        final String date;
+        final List<TrainInfo> trains;
+        final long timestamp;
+
+        Batch(String fromStationCode, String toStationCode, String date, List<TrainInfo> trains, long timestamp) {
+            this.fromStationCode = fromStationCode;
+            this.toStationCode = toStationCode;
+            this.date = date;
+            this.trains = trains;
+            this.timestamp = timestamp;
+        }
+    }
+}
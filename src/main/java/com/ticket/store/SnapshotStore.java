@@ -0,0 +1,173 @@
+package com.ticket.store;
+
+import com.ticket.model.SeatClass;
+import com.ticket.model.TrainInfo;
+import com.ticket.service.TicketObserver;
+import com.ticket.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 余票快照的列式内存存储 - 按线路（出发站|到达站|日期）保存多次查询的余票快照
+ *
+ * 每条线路的每个车次每次快照占一行，各列为基本类型数组：
+ * 车次编号 int[]（车次代码字典编码）、每种座席一个 byte[]（编码见 {@link SeatClass#encode(String)}）。
+ * 时间戳每次快照只存一个，连同该快照的起始行号，按时间筛选时整段跳过不在范围内的快照。
+ * 一行约 14 字节，扫描时只读取需要的列，不创建中间对象。
+ */
+public class SnapshotStore implements TicketObserver {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** 两次清理过期线路的最小间隔 */
+    private static final long SWEEP_INTERVAL_MS = 60_000;
+
+    private final Map<String, RouteColumns> routes = new ConcurrentHashMap<>();
+
+    /** 上次清理的时间 */
+    private volatile long lastSweepAt;
+
+    @Override
+    public void onTickets(String fromStationCode, String toStationCode, String date,
+                          List<TrainInfo> trains, long timestamp) {
+        record(fromStationCode, toStationCode, date, trains, timestamp);
+    }
+
+    /**
+     * 追加一次余票快照
+     */
+    public void record(String fromStationCode, String toStationCode, String date,
+                       List<TrainInfo> trains, long timestamp) {
+        sweep();
+        routes.computeIfAbsent(key(fromStationCode, toStationCode, date), k -> new RouteColumns())
+                .append(trains, timestamp);
+    }
+
+    /**
+     * 在 [since, until) 时间段内的任一快照中该座席有票的车次代码
+     * 例如"今天哪些车次出现过二等座"
+     */
+    public List<String> trainsWithSeat(String fromStationCode, String toStationCode, String date,
+                                       SeatClass seatClass, long since, long until) {
+        RouteColumns columns = routes.get(key(fromStationCode, toStationCode, date));
+        return columns != null ? columns.trainsWithSeat(seatClass, since, until) : new ArrayList<>();
+    }
+
+    /**
+     * 线路已记录的快照次数
+     */
+    public int getSnapshotCount(String fromStationCode, String toStationCode, String date) {
+        RouteColumns columns = routes.get(key(fromStationCode, toStationCode, date));
+        return columns != null ? columns.getSnapshotCount() : 0;
+    }
+
+    /**
+     * 所有线路的总行数
+     */
+    public long getRowCount() {
+        long total = 0;
+        for (RouteColumns columns : routes.values()) {
+            total += columns.getRowCount();
+        }
+        return total;
+    }
+
+    /**
+     * 移除出发日期已过的线路（每分钟至多一次）
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweepAt < SWEEP_INTERVAL_MS) return;
+        lastSweepAt = now;
+        routes.keySet().removeIf(key -> TimeUtil.isPastDate(key.substring(key.lastIndexOf('|') + 1)));
+    }
+
+    private String key(String fromStationCode, String toStationCode, String date) {
+        return fromStationCode + "|" + toStationCode + "|" + date;
+    }
+
+    /**
+     * 单条线路的列数据，追加和扫描都在对象锁内进行
+     */
+    private static class RouteColumns {
+        private final Map<String, Integer> trainIds = new HashMap<>();
+        private final List<String> trainCodes = new ArrayList<>();
+
+        /** 第 i 次快照的时间和起始行号 */
+        private long[] snapshotTimes = new long[INITIAL_CAPACITY];
+        private int[] snapshotStarts = new int[INITIAL_CAPACITY];
+        private int snapshotCount;
+
+        private int[] trains = new int[INITIAL_CAPACITY];
+        private final byte[][] seats = new byte[SeatClass.values().length][INITIAL_CAPACITY];
+        private int size;
+
+        synchronized void append(List<TrainInfo> snapshot, long timestamp) {
+            ensureCapacity(size + snapshot.size());
+            if (snapshotCount == snapshotTimes.length) {
+                snapshotTimes = Arrays.copyOf(snapshotTimes, snapshotCount * 2);
+                snapshotStarts = Arrays.copyOf(snapshotStarts, snapshotCount * 2);
+            }
+            snapshotTimes[snapshotCount] = timestamp;
+            snapshotStarts[snapshotCount] = size;
+            SeatClass[] seatClasses = SeatClass.values();
+            for (TrainInfo train : snapshot) {
+                Integer id = trainIds.get(train.getStationTrainCode());
+                if (id == null) {
+                    id = trainCodes.size();
+                    trainIds.put(train.getStationTrainCode(), id);
+                    trainCodes.add(train.getStationTrainCode());
+                }
+                trains[size] = id;
+                for (SeatClass seatClass : seatClasses) {
+                    seats[seatClass.ordinal()][size] = SeatClass.encode(seatClass.valueOf(train));
+                }
+                size++;
+            }
+            snapshotCount++;
+        }
+
+        synchronized List<String> trainsWithSeat(SeatClass seatClass, long since, long until) {
+            byte[] column = seats[seatClass.ordinal()];
+            boolean[] hit = new boolean[trainCodes.size()];
+            for (int s = 0; s < snapshotCount; s++) {
+                if (snapshotTimes[s] < since || snapshotTimes[s] >= until) continue;
+                int end = s + 1 < snapshotCount ? snapshotStarts[s + 1] : size;
+                for (int i = snapshotStarts[s]; i < end; i++) {
+                    if (SeatClass.isAvailable(column[i])) {
+                        hit[trains[i]] = true;
+                    }
+                }
+            }
+            List<String> result = new ArrayList<>();
+            for (int id = 0; id < hit.length; id++) {
+                if (hit[id]) {
+                    result.add(trainCodes.get(id));
+                }
+            }
+            return result;
+        }
+
+        synchronized int getSnapshotCount() {
+            return snapshotCount;
+        }
+
+        synchronized int getRowCount() {
+            return size;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= trains.length) return;
+            int capacity = Math.max(required, trains.length * 2);
+            trains = Arrays.copyOf(trains, capacity);
+            for (int c = 0; c < seats.length; c++) {
+                seats[c] = Arrays.copyOf(seats[c], capacity);
+            }
+        }
+    }
+}
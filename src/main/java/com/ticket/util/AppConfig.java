@@ -0,0 +1,260 @@
+package com.ticket.util;
+
+import com.ticket.model.StopOrder;
+
+import java.util.Arrays;
+
+/**
+ * 运行参数：限速、重试、分析范围和缓存有效期，默认值与早期的硬编码常量一致
+ *
+ * 进程内只有一份当前配置（{@link #current()}），各服务在使用时读取，
+ * 通过 {@link #apply(AppConfig)} 整体替换，同时重建 HTTP 客户端。
+ */
+public class AppConfig {
+
+    /** 所有配置项名称 */
+    public static final String[] KEYS = {
+            "throttle.intervalMs", "rateLimit.waitsMs",
+            "buyLong.maxSampledStops", "buyLong.stopOrder", "buyLong.routeBatch", "buyLong.priceLookup", "buyShort.maxQueries",
+            "buyShort.maxRouteLookups",
+            "cache.ticketTtlMs", "cache.sessionTtlMs", "cache.sessionFile", "cache.stationMaxAgeHours",
+            "prefetch.routes", "prefetch.days", "prefetch.intervalMs", "prefetch.refreshMs",
+            "prefetch.maxPerHour", "prefetch.historyFile",
+            "http.maxIdleConnections", "http.keepAliveSeconds", "http.maxRequestsPerHost", "http.maxRequests",
+            "http.http2Enabled", "http.connectTimeoutSeconds", "http.readTimeoutSeconds",
+            "http.writeTimeoutSeconds", "http.callTimeoutSeconds",
+            "http.captureFile", "http.replayFile", "http.replayLatencyScale"
+    };
+
+    private static volatile AppConfig current = new AppConfig();
+
+    /** 配置方案名 */
+    private String profile = Profile.DEFAULT.getName();
+
+    /** 两次请求之间的最小间隔（毫秒） */
+    private long throttleIntervalMs = 1000;
+
+    /** 被限流后各次重试前的等待时间（毫秒），全部用完后刷新会话再试一次 */
+    private long[] rateLimitWaitsMs = {3000, 6000, 9000};
+
+    /** 买长乘短：每个车次除第一次查询外最多再查的延伸站数 */
+    private int maxSampledStops = 4;
+
+    /**
+     * 买长乘短：延伸站的查询顺序
+     * 默认先查终到站：基准测试中 nearest 和 binary 发出的请求都更多，只在需要最近有票站时改用
+     */
+    private StopOrder stopOrder = StopOrder.TERMINUS;
+
+    /**
+     * 买长乘短：每批并行查询经停站的车次数（按分数从高到低）
+     * 批次越大越快，但可能多查排在后面、最终用不上的车次：基准测试中与逐个查询相比，
+     * 4 约快三分之一，多 1 次请求；8 不再更快，多 5 次请求
+     */
+    private int routeBatch = 4;
+
+    /** 买长乘短：是否查询票价并按多付的钱排序（每个方案多两次请求，结果有缓存） */
+    private boolean priceLookup = true;
+
+    /** 买短乘长：单次分析最多新发起的余票查询数 */
+    private int buyShortMaxQueries = 12;
+
+    /** 买短乘长：单次分析最多新查询经停站的车次数（按出发时间顺序，缓存命中不计） */
+    private int buyShortMaxRouteLookups = 12;
+
+    /** 余票缓存有效期（毫秒） */
+    private long ticketCacheTtlMs = 60_000;
+
+    /** 本地会话快照有效期（毫秒） */
+    private long sessionTtlMs = 30 * 60 * 1000;
+
+    /** 本地会话快照文件，为空表示不保存也不恢复会话 */
+    private String sessionFile = "session.dat";
+
+    /** 车站数据缓存有效期（小时） */
+    private long stationCacheMaxAgeHours = 24 * 7;
+
+    /** 查询服务：预取的热门线路数，为 0 表示不预取 */
+    private int prefetchRoutes = 5;
+
+    /** 查询服务：预取从今天起的天数 */
+    private int prefetchDays = 3;
+
+    /** 查询服务：预取周期（毫秒），每个周期至多发一个请求 */
+    private long prefetchIntervalMs = 2000;
+
+    /**
+     * 查询服务：同一线路同一天的余票两次预取的最小间隔（毫秒）
+     * 与余票缓存有效期无关：缓存过期后不会立即重查，默认同一线路同一天每小时至多 4 次
+     */
+    private long prefetchRefreshMs = 15 * 60_000;
+
+    /** 查询服务：每小时最多发出的预取请求数（余票和经停站合计） */
+    private int prefetchMaxPerHour = 60;
+
+    /** 查询服务：热门线路记录文件，为空表示不保存也不读取 */
+    private String prefetchHistoryFile = "hot-routes.json";
+
+    private HttpConfig http = new HttpConfig();
+
+    /**
+     * 当前生效的配置
+     */
+    public static AppConfig current() {
+        return current;
+    }
+
+    /**
+     * 替换当前配置，并按其中的传输层配置重建 HTTP 客户端
+     */
+    public static synchronized void apply(AppConfig config) {
+        current = config;
+        HttpUtil.configure(config.getHttp());
+    }
+
+    /**
+     * 按配置项名称设置值（配置文件、环境变量和命令行共用）
+     *
+     * @throws IllegalArgumentException 配置项不存在或值无法解析
+     */
+    public void set(String key, String value) {
+        value = value.trim();
+        try {
+            switch (key) {
+                case "throttle.intervalMs": throttleIntervalMs = Long.parseLong(value); break;
+                case "rateLimit.waitsMs": rateLimitWaitsMs = parseLongs(value); break;
+                case "buyLong.maxSampledStops": maxSampledStops = Integer.parseInt(value); break;
+                case "buyLong.stopOrder":
+                    StopOrder order = StopOrder.fromName(value);
+                    if (order == null) {
+                        throw new IllegalArgumentException("配置项 " + key + " 的值无效: " + value
+                                + "（可选 nearest、binary、terminus）");
+                    }
+                    stopOrder = order;
+                    break;
+                case "buyLong.routeBatch": routeBatch = Integer.parseInt(value); break;
+                case "buyLong.priceLookup": priceLookup = Boolean.parseBoolean(value); break;
+                case "buyShort.maxQueries": buyShortMaxQueries = Integer.parseInt(value); break;
+                case "buyShort.maxRouteLookups": buyShortMaxRouteLookups = Integer.parseInt(value); break;
+                case "cache.ticketTtlMs": ticketCacheTtlMs = Long.parseLong(value); break;
+                case "cache.sessionTtlMs": sessionTtlMs = Long.parseLong(value); break;
+                case "cache.sessionFile": sessionFile = value.isEmpty() ? null : value; break;
+                case "cache.stationMaxAgeHours": stationCacheMaxAgeHours = Long.parseLong(value); break;
+                case "prefetch.routes": prefetchRoutes = Integer.parseInt(value); break;
+                case "prefetch.days": prefetchDays = Integer.parseInt(value); break;
+                case "prefetch.intervalMs": prefetchIntervalMs = Long.parseLong(value); break;
+                case "prefetch.refreshMs": prefetchRefreshMs = Long.parseLong(value); break;
+                case "prefetch.maxPerHour": prefetchMaxPerHour = Integer.parseInt(value); break;
+                case "prefetch.historyFile": prefetchHistoryFile = value.isEmpty() ? null : value; break;
+                case "http.maxIdleConnections": http.setMaxIdleConnections(Integer.parseInt(value)); break;
+                case "http.keepAliveSeconds": http.setKeepAliveSeconds(Long.parseLong(value)); break;
+                case "http.maxRequestsPerHost": http.setMaxRequestsPerHost(parsePositiveInt(key, value)); break;
+                case "http.maxRequests": http.setMaxRequests(parsePositiveInt(key, value)); break;
+                case "http.http2Enabled": http.setHttp2Enabled(Boolean.parseBoolean(value)); break;
+                case "http.connectTimeoutSeconds": http.setConnectTimeoutSeconds(Long.parseLong(value)); break;
+                case "http.readTimeoutSeconds": http.setReadTimeoutSeconds(Long.parseLong(value)); break;
+                case "http.writeTimeoutSeconds": http.setWriteTimeoutSeconds(Long.parseLong(value)); break;
+                case "http.callTimeoutSeconds": http.setCallTimeoutSeconds(Long.parseLong(value)); break;
+                case "http.captureFile": http.setCaptureFile(value.isEmpty() ? null : value); break;
+                case "http.replayFile": http.setReplayFile(value.isEmpty() ? null : value); break;
+                case "http.replayLatencyScale": http.setReplayLatencyScale(Double.parseDouble(value)); break;
+                default: throw new IllegalArgumentException("未知配置项: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("配置项 " + key + " 的值无效: " + value);
+        }
+    }
+
+    /**
+     * 解析至少为 1 的整数（并发数为 0 时请求会永久等待许可）
+     */
+    private static int parsePositiveInt(String key, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed < 1) {
+            throw new IllegalArgumentException("配置项 " + key + " 必须大于等于 1: " + value);
+        }
+        return parsed;
+    }
+
+    private static long[] parseLongs(String value) {
+        if (value.isEmpty()) return new long[0];
+        String[] parts = value.split(",");
+        long[] result = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Long.parseLong(parts[i].trim());
+        }
+        return result;
+    }
+
+    public String getProfile() { return profile; }
+    public void setProfile(String profile) { this.profile = profile; }
+
+    public long getThrottleIntervalMs() { return throttleIntervalMs; }
+    public void setThrottleIntervalMs(long throttleIntervalMs) { this.throttleIntervalMs = throttleIntervalMs; }
+
+    public long[] getRateLimitWaitsMs() { return rateLimitWaitsMs; }
+    public void setRateLimitWaitsMs(long[] rateLimitWaitsMs) { this.rateLimitWaitsMs = rateLimitWaitsMs; }
+
+    public int getMaxSampledStops() { return maxSampledStops; }
+    public void setMaxSampledStops(int maxSampledStops) { this.maxSampledStops = maxSampledStops; }
+
+    public StopOrder getStopOrder() { return stopOrder; }
+    public void setStopOrder(StopOrder stopOrder) { this.stopOrder = stopOrder; }
+
+    public int getRouteBatch() { return routeBatch; }
+    public void setRouteBatch(int routeBatch) { this.routeBatch = routeBatch; }
+
+    public boolean isPriceLookup() { return priceLookup; }
+    public void setPriceLookup(boolean priceLookup) { this.priceLookup = priceLookup; }
+
+    public int getBuyShortMaxQueries() { return buyShortMaxQueries; }
+    public void setBuyShortMaxQueries(int buyShortMaxQueries) { this.buyShortMaxQueries = buyShortMaxQueries; }
+
+    public int getBuyShortMaxRouteLookups() { return buyShortMaxRouteLookups; }
+    public void setBuyShortMaxRouteLookups(int buyShortMaxRouteLookups) { this.buyShortMaxRouteLookups = buyShortMaxRouteLookups; }
+
+    public long getTicketCacheTtlMs() { return ticketCacheTtlMs; }
+    public void setTicketCacheTtlMs(long ticketCacheTtlMs) { this.ticketCacheTtlMs = ticketCacheTtlMs; }
+
+    public long getSessionTtlMs() { return sessionTtlMs; }
+    public void setSessionTtlMs(long sessionTtlMs) { this.sessionTtlMs = sessionTtlMs; }
+
+    public String getSessionFile() { return sessionFile; }
+    public void setSessionFile(String sessionFile) { this.sessionFile = sessionFile; }
+
+    public long getStationCacheMaxAgeHours() { return stationCacheMaxAgeHours; }
+    public void setStationCacheMaxAgeHours(long stationCacheMaxAgeHours) { this.stationCacheMaxAgeHours = stationCacheMaxAgeHours; }
+
+    public int getPrefetchRoutes() { return prefetchRoutes; }
+    public void setPrefetchRoutes(int prefetchRoutes) { this.prefetchRoutes = prefetchRoutes; }
+
+    public int getPrefetchDays() { return prefetchDays; }
+    public void setPrefetchDays(int prefetchDays) { this.prefetchDays = prefetchDays; }
+
+    public long getPrefetchIntervalMs() { return prefetchIntervalMs; }
+    public void setPrefetchIntervalMs(long prefetchIntervalMs) { this.prefetchIntervalMs = prefetchIntervalMs; }
+
+    public long getPrefetchRefreshMs() { return prefetchRefreshMs; }
+    public void setPrefetchRefreshMs(long prefetchRefreshMs) { this.prefetchRefreshMs = prefetchRefreshMs; }
+
+    public int getPrefetchMaxPerHour() { return prefetchMaxPerHour; }
+    public void setPrefetchMaxPerHour(int prefetchMaxPerHour) { this.prefetchMaxPerHour = prefetchMaxPerHour; }
+
+    public String getPrefetchHistoryFile() { return prefetchHistoryFile; }
+    public void setPrefetchHistoryFile(String prefetchHistoryFile) { this.prefetchHistoryFile = prefetchHistoryFile; }
+
+    public HttpConfig getHttp() { return http; }
+    public void setHttp(HttpConfig http) { this.http = http; }
+
+    @Override
+    public String toString() {
+        return "配置方案 " + profile
+                + ": 请求间隔" + throttleIntervalMs + "ms"
+                + ", 限流重试等待" + Arrays.toString(rateLimitWaitsMs) + "ms"
+                + ", 买长取样站数" + maxSampledStops
+                + ", 延伸站顺序 " + stopOrder.getName()
+                + ", 买短查询上限" + buyShortMaxQueries
+                + ", 余票缓存" + ticketCacheTtlMs / 1000 + "秒"
+                + ", 单主机并发" + http.getMaxRequestsPerHost();
+    }
+}
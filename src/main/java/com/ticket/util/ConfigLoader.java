@@ -0,0 +1,100 @@
+package com.ticket.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 加载运行配置，后者覆盖前者：
+ * <ol>
+ *   <li>配置方案（--profile、环境变量 TICKET_PROFILE 或配置文件中的 profile）</li>
+ *   <li>配置文件（--config 指定，默认为工作目录下的 ticket.properties，不存在则跳过）</li>
+ *   <li>环境变量：配置项名大写、点换成下划线并加 TICKET_ 前缀，如 TICKET_THROTTLE_INTERVALMS</li>
+ *   <li>命令行：--set 配置项=值，可出现多次</li>
+ * </ol>
+ */
+public class ConfigLoader {
+
+    public static final String DEFAULT_CONFIG_FILE = "ticket.properties";
+
+    private static final String ENV_PREFIX = "TICKET_";
+
+    private ConfigLoader() {}
+
+    /**
+     * 从命令行参数、环境变量和配置文件加载配置；识别的参数会从 args 中移除
+     *
+     * @throws IllegalArgumentException 方案名、配置项或参数格式无效
+     */
+    public static AppConfig load(List<String> args) throws IOException {
+        return load(args, System.getenv());
+    }
+
+    static AppConfig load(List<String> args, Map<String, String> env) throws IOException {
+        String profileName = null;
+        String configFile = null;
+        Properties overrides = new Properties();
+
+        Iterator<String> it = args.iterator();
+        while (it.hasNext()) {
+            String arg = it.next();
+            if (!"--profile".equals(arg) && !"--config".equals(arg) && !"--set".equals(arg)) continue;
+            it.remove();
+            if (!it.hasNext()) {
+                throw new IllegalArgumentException(arg + " 缺少参数值");
+            }
+            String value = it.next();
+            it.remove();
+            if ("--profile".equals(arg)) {
+                profileName = value;
+            } else if ("--config".equals(arg)) {
+                configFile = value;
+            } else {
+                int eq = value.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("--set 参数格式应为 配置项=值: " + value);
+                }
+                overrides.setProperty(value.substring(0, eq).trim(), value.substring(eq + 1));
+            }
+        }
+
+        Properties file = new Properties();
+        Path path = Paths.get(configFile != null ? configFile : DEFAULT_CONFIG_FILE);
+        if (configFile != null || Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                file.load(reader);
+            }
+        }
+
+        if (profileName == null) profileName = env.get(ENV_PREFIX + "PROFILE");
+        if (profileName == null) profileName = file.getProperty("profile");
+        Profile profile = profileName != null ? Profile.fromName(profileName.trim()) : Profile.DEFAULT;
+        if (profile == null) {
+            throw new IllegalArgumentException("未知配置方案: " + profileName + "（可选 default、fast、polite、exhaustive）");
+        }
+
+        AppConfig config = profile.create();
+        for (String key : file.stringPropertyNames()) {
+            if (!"profile".equals(key)) {
+                config.set(key, file.getProperty(key));
+            }
+        }
+        for (String key : AppConfig.KEYS) {
+            String value = env.get(ENV_PREFIX + key.replace('.', '_').toUpperCase());
+            if (value != null) {
+                config.set(key, value);
+            }
+        }
+        for (String key : overrides.stringPropertyNames()) {
+            config.set(key, overrides.getProperty(key));
+        }
+        return config;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ticket.util;
+
+/**
+ * 分隔符记录的字段游标 - 扫描一遍记下各字段的起止位置，按下标取字段时才生成对象，
+ * 不读的字段（如余票记录开头两百多字符的 secretStr）不产生任何分配
+ *
+ * 游标可变、非线程安全，用 {@link #reset(CharSequence)} 换到下一条记录后反复使用；
+ * 字段下标越界时按空字段处理。
+ */
+public final class FieldCursor {
+
+    private static final String EMPTY = "";
+
+    private final char separator;
+    private CharSequence text;
+
+    /** 第 i 个字段从 starts[i] 开始，到 starts[i + 1] - 1（分隔符）结束 */
+    private int[] starts = new int[48];
+    private int count;
+
+    public FieldCursor(char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * 切换到新的一条记录（不复制内容，记录在使用期间不能修改）
+     */
+    public FieldCursor reset(CharSequence text) {
+        this.text = text;
+        int length = text.length();
+        count = 0;
+        mark(0);
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) == separator) {
+                mark(i + 1);
+            }
+        }
+        mark(length + 1);
+        count--;
+        return this;
+    }
+
+    private void mark(int start) {
+        if (count == starts.length) {
+            int[] grown = new int[starts.length * 2];
+            System.arraycopy(starts, 0, grown, 0, count);
+            starts = grown;
+        }
+        starts[count++] = start;
+    }
+
+    /**
+     * 字段数（与 split 不同，末尾的空字段也计入）
+     */
+    public int count() {
+        return count;
+    }
+
+    public int length(int index) {
+        return index < count ? starts[index + 1] - 1 - starts[index] : 0;
+    }
+
+    public boolean isEmpty(int index) {
+        return length(index) == 0;
+    }
+
+    /**
+     * 字段内容，空字段返回共享的空串
+     */
+    public String get(int index) {
+        int length = length(index);
+        if (length == 0) return EMPTY;
+        int start = starts[index];
+        if (text instanceof String) {
+            return ((String) text).substring(start, start + length);
+        }
+        return text.subSequence(start, start + length).toString();
+    }
+
+    /**
+     * 字段内容与候选值之一相同时返回该候选值（不分配），否则同 {@link #get(int)}
+     */
+    public String get(int index, String[] common) {
+        for (String candidate : common) {
+            if (equalsTo(index, candidate)) return candidate;
+        }
+        return get(index);
+    }
+
+    /**
+     * 字段内容是否等于 value（不分配）
+     */
+    public boolean equalsTo(int index, String value) {
+        int length = length(index);
+        if (length != value.length()) return false;
+        int start = starts[index];
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(start + i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按非负十进制整数解析字段（不分配），空字段或含非数字字符时返回 defaultValue
+     */
+    public int getInt(int index, int defaultValue) {
+        int length = length(index);
+        if (length == 0 || length > 9) return defaultValue;
+        int start = starts[index];
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            if (c < '0' || c > '9') return defaultValue;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ticket.util;
+
+import okhttp3.Interceptor;
+
+/**
+ * HTTP 传输层配置：连接池、并发限制、协议和超时
+ * 默认值与早期的硬编码配置一致（15秒连接/读取超时）
+ */
+public class HttpConfig {
+
+    /** 连接池最大空闲连接数 */
+    private int maxIdleConnections = 5;
+
+    /** 空闲连接保活时间（秒） */
+    private long keepAliveSeconds = 300;
+
+    /** 同一主机的最大并发请求数 */
+    private int maxRequestsPerHost = 5;
+
+    /** 全局最大并发请求数（异步调用） */
+    private int maxRequests = 64;
+
+    /** 是否启用 HTTP/2（服务器支持时通过 ALPN 协商，否则回落到 HTTP/1.1） */
+    private boolean http2Enabled = true;
+
+    /** 建立连接超时（秒） */
+    private long connectTimeoutSeconds = 15;
+
+    /** 读取超时（秒），两次数据到达之间的最长间隔 */
+    private long readTimeoutSeconds = 15;
+
+    /** 写入超时（秒） */
+    private long writeTimeoutSeconds = 15;
+
+    /** 单次调用总超时（秒，含重定向），0 表示不限制 */
+    private long callTimeoutSeconds = 0;
+
+    /** 录制流量到该档案文件，为空表示不录制 */
+    private String captureFile;
+
+    /** 从该档案文件回放流量而不访问网络，为空表示不回放（优先于录制） */
+    private String replayFile;
+
+    /** 回放耗时缩放比例：1 按录制时的耗时等待，0 立即返回 */
+    private double replayLatencyScale = 1.0;
+
+    /** 代替网络应答所有请求的拦截器（模拟的 12306，基准测试用），优先于回放和录制 */
+    private Interceptor simulator;
+
+    public int getMaxIdleConnections() { return maxIdleConnections; }
+    public void setMaxIdleConnections(int maxIdleConnections) { this.maxIdleConnections = maxIdleConnections; }
+
+    public long getKeepAliveSeconds() { return keepAliveSeconds; }
+    public void setKeepAliveSeconds(long keepAliveSeconds) { this.keepAliveSeconds = keepAliveSeconds; }
+
+    public int getMaxRequestsPerHost() { return maxRequestsPerHost; }
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) { this.maxRequestsPerHost = maxRequestsPerHost; }
+
+    public int getMaxRequests() { return maxRequests; }
+    public void setMaxRequests(int maxRequests) { this.maxRequests = maxRequests; }
+
+    public boolean isHttp2Enabled() { return http2Enabled; }
+    public void setHttp2Enabled(boolean http2Enabled) { this.http2Enabled = http2Enabled; }
+
+    public long getConnectTimeoutSeconds() { return connectTimeoutSeconds; }
+    public void setConnectTimeoutSeconds(long connectTimeoutSeconds) { this.connectTimeoutSeconds = connectTimeoutSeconds; }
+
+    public long getReadTimeoutSeconds() { return readTimeoutSeconds; }
+    public void setReadTimeoutSeconds(long readTimeoutSeconds) { this.readTimeoutSeconds = readTimeoutSeconds; }
+
+    public long getWriteTimeoutSeconds() { return writeTimeoutSeconds; }
+    public void setWriteTimeoutSeconds(long writeTimeoutSeconds) { this.writeTimeoutSeconds = writeTimeoutSeconds; }
+
+    public long getCallTimeoutSeconds() { return callTimeoutSeconds; }
+    public void setCallTimeoutSeconds(long callTimeoutSeconds) { this.callTimeoutSeconds = callTimeoutSeconds; }
+
+    public String getCaptureFile() { return captureFile; }
+    public void setCaptureFile(String captureFile) { this.captureFile = captureFile; }
+
+    public String getReplayFile() { return replayFile; }
+    public void setReplayFile(String replayFile) { this.replayFile = replayFile; }
+
+    public double getReplayLatencyScale() { return replayLatencyScale; }
+    public void setReplayLatencyScale(double replayLatencyScale) { this.replayLatencyScale = replayLatencyScale; }
+
+    public Interceptor getSimulator() { return simulator; }
+    public void setSimulator(Interceptor simulator) { this.simulator = simulator; }
+}
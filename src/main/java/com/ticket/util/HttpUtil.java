@@ -1,45 +1,143 @@
 package com.ticket.util;
 
 import okhttp3.*;
+import okhttp3.brotli.BrotliInterceptor;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HttpUtil {
 
-    private static final OkHttpClient CLIENT;
+    private static volatile OkHttpClient CLIENT;
+    private static volatile HttpConfig config = new HttpConfig();
     private static long lastRequestTime = 0;
-    private static final long MIN_INTERVAL_MS = 1000;
+
+    /** 正在进行的请求数（含等待限速的请求） */
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+    /** 等待主机并发许可的请求数 */
+    private static final AtomicInteger WAITING = new AtomicInteger();
+
+    /** 累计新建连接数 */
+    private static final AtomicLong CONNECTIONS_OPENED = new AtomicLong();
+
+    /** 累计请求数 */
+    private static final AtomicLong TOTAL_REQUESTS = new AtomicLong();
+
+    /** 按 Content-Encoding 统计的响应数（identity 表示未压缩） */
+    private static final Map<String, AtomicLong> ENCODING_COUNTS = new ConcurrentHashMap<>();
+
+    /**
+     * 每个主机的并发许可（同步调用不受 Dispatcher 限制，需要自行控制）
+     * 重新配置时整体换成新表，进行中的请求仍归还到取得许可的旧信号量
+     */
+    private static volatile Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
 
     /** 简单的内存 Cookie 存储 */
-    private static final Map<String, List<Cookie>> COOKIE_STORE = new HashMap<>();
+    private static final Map<String, List<Cookie>> COOKIE_STORE = new ConcurrentHashMap<>();
 
     static {
+        CLIENT = buildClient(config);
+    }
+
+    /**
+     * 按新的传输层配置重建客户端，旧连接池中的空闲连接会被关闭
+     */
+    public static synchronized void configure(HttpConfig newConfig) {
+        OkHttpClient old = CLIENT;
+        OkHttpClient client = buildClient(newConfig);
+        config = newConfig;
+        hostPermits = new ConcurrentHashMap<>();
+        CLIENT = client;
+        old.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient buildClient(HttpConfig cfg) {
         CookieJar cookieJar = new CookieJar() {
             @Override
             public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
-                COOKIE_STORE.put(url.host(), cookies);
+                // 按名称、域和路径合并，避免一次响应只下发部分 Cookie 时冲掉其余的（如恢复的会话 Cookie）
+                for (Cookie cookie : cookies) {
+                    addCookie(url.host(), cookie);
+                }
             }
 
             @Override
             public List<Cookie> loadForRequest(HttpUrl url) {
                 List<Cookie> cookies = COOKIE_STORE.get(url.host());
-                return cookies != null ? cookies : new ArrayList<>();
+                if (cookies == null) return new ArrayList<>();
+                long now = System.currentTimeMillis();
+                List<Cookie> result = new ArrayList<>(cookies.size());
+                for (Cookie cookie : cookies) {
+                    if (cookie.expiresAt() >= now) result.add(cookie);
+                }
+                return result;
             }
         };
 
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(cfg.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(cfg.getMaxRequestsPerHost());
+
+        List<Protocol> protocols = cfg.isHttp2Enabled()
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+
         OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .cookieJar(cookieJar)
-                .connectTimeout(15, TimeUnit.SECONDS)
-                .readTimeout(15, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(cfg.getMaxIdleConnections(), cfg.getKeepAliveSeconds(), TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                .protocols(protocols)
+                .connectTimeout(cfg.getConnectTimeoutSeconds(), TimeUnit.SECONDS)
+                .readTimeout(cfg.getReadTimeoutSeconds(), TimeUnit.SECONDS)
+                .writeTimeout(cfg.getWriteTimeoutSeconds(), TimeUnit.SECONDS)
+                .callTimeout(cfg.getCallTimeoutSeconds(), TimeUnit.SECONDS);
+        // 录制/回放放在解压之外：档案里存的是解压后的内容，回放时也不经过网络和解压
+        if (cfg.getSimulator() != null) {
+            builder.addInterceptor(cfg.getSimulator());
+        } else if (cfg.getReplayFile() != null) {
+            try {
+                builder.addInterceptor(TrafficArchive.replay(Path.of(cfg.getReplayFile()), cfg.getReplayLatencyScale()));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("无法读取流量档案 " + cfg.getReplayFile() + ": " + e.getMessage());
+            }
+        } else if (cfg.getCaptureFile() != null) {
+            builder.addInterceptor(TrafficArchive.capture(Path.of(cfg.getCaptureFile())));
+        }
+        builder
+                // 声明 Accept-Encoding: br,gzip 并透明解压，调用方拿到的始终是解压后的流
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                .addNetworkInterceptor(chain -> {
+                    Response response = chain.proceed(chain.request());
+                    String encoding = response.header("Content-Encoding", "identity");
+                    ENCODING_COUNTS.computeIfAbsent(encoding.toLowerCase(), k -> new AtomicLong()).incrementAndGet();
+                    return response;
+                })
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+                        CONNECTIONS_OPENED.incrementAndGet();
+                    }
+                })
                 .followRedirects(true);
 
         try {
@@ -59,14 +157,13 @@ public class HttpUtil {
             System.err.println("警告: SSL 配置失败，使用默认配置: " + e.getMessage());
         }
 
-        CLIENT = builder.build();
+        return builder.build();
     }
 
     /**
      * 初始化会话 - 先访问12306页面获取必要的Cookie
      */
     public static void initSession() throws IOException {
-        throttle();
         Request request = new Request.Builder()
                 .url("https://kyfw.12306.cn/otn/leftTicket/init")
                 .header("User-Agent", getUserAgent())
@@ -74,20 +171,38 @@ public class HttpUtil {
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
                 .build();
 
-        try (Response response = CLIENT.newCall(request).execute()) {
+        execute(request, response -> {
             // 只需要拿到 Cookie，内容不重要
             if (response.body() != null) {
                 response.body().close();
             }
-        }
+            return null;
+        });
     }
 
     /**
-     * 发送 GET 请求到 12306 API
+     * 发送 GET 请求并返回 HTML 内容（用于解析页面）
      */
-    public static String get(String url) throws IOException {
-        throttle();
+    public static String getHtml(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", getUserAgent())
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                .header("Accept-Language", "zh-CN,zh;q=0.9")
+                .build();
+
+        return execute(request, response -> {
+            if (!response.isSuccessful()) {
+                throw new IOException("请求失败, HTTP状态码: " + response.code());
+            }
+            return response.body() != null ? response.body().string() : "";
+        });
+    }
 
+    /**
+     * 发送 GET 请求到 12306 API，响应体以字符流交给 reader 解析，不在内存中拼出完整字符串
+     */
+    public static <T> T getStream(String url, BodyReader<T> reader) throws IOException {
         Request request = new Request.Builder()
                 .url(url)
                 .header("User-Agent", getUserAgent())
@@ -98,35 +213,158 @@ public class HttpUtil {
                 .header("Connection", "keep-alive")
                 .build();
 
-        try (Response response = CLIENT.newCall(request).execute()) {
+        return execute(request, response -> {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败, HTTP状态码: " + response.code() + ", URL: " + url);
             }
-            return response.body() != null ? response.body().string() : "";
-        }
+            if (response.body() == null) {
+                return reader.read(Reader.nullReader());
+            }
+            try (Reader body = response.body().charStream()) {
+                return reader.read(body);
+            }
+        });
     }
 
     /**
-     * 发送 GET 请求并返回 HTML 内容（用于解析页面）
+     * 条件下载：携带上次的 ETag / Last-Modified，服务器返回 304 时不传输内容
+     *
+     * @param validators 输入上次保存的 "ETag"、"Last-Modified"，下载成功时更新为新值
+     * @return 文件有更新并已写入返回 true，未修改（304）返回 false
      */
-    public static String getHtml(String url) throws IOException {
-        throttle();
-
-        Request request = new Request.Builder()
+    public static boolean downloadIfModified(String url, Path target, Map<String, String> validators)
+            throws IOException {
+        Request.Builder builder = new Request.Builder()
                 .url(url)
                 .header("User-Agent", getUserAgent())
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
-                .header("Accept-Language", "zh-CN,zh;q=0.9")
-                .build();
+                .header("Accept", "*/*")
+                .header("Accept-Language", "zh-CN,zh;q=0.9");
+        if (Files.exists(target)) {
+            String etag = validators.get("ETag");
+            String lastModified = validators.get("Last-Modified");
+            if (etag != null) builder.header("If-None-Match", etag);
+            if (lastModified != null) builder.header("If-Modified-Since", lastModified);
+        }
 
-        try (Response response = CLIENT.newCall(request).execute()) {
+        return execute(builder.build(), response -> {
+            if (response.code() == 304) {
+                return false;
+            }
             if (!response.isSuccessful()) {
-                throw new IOException("请求失败, HTTP状态码: " + response.code());
+                throw new IOException("请求失败, HTTP状态码: " + response.code() + ", URL: " + url);
             }
-            return response.body() != null ? response.body().string() : "";
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (InputStream in = response.body() != null ? response.body().byteStream() : InputStream.nullInputStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            validators.remove("ETag");
+            validators.remove("Last-Modified");
+            String etag = response.header("ETag");
+            String lastModified = response.header("Last-Modified");
+            if (etag != null) validators.put("ETag", etag);
+            if (lastModified != null) validators.put("Last-Modified", lastModified);
+            return true;
+        });
+    }
+
+    /**
+     * 响应体解析回调
+     */
+    public interface BodyReader<T> {
+        T read(Reader reader) throws IOException;
+    }
+
+    /**
+     * 执行请求：限速、主机并发许可、统计，响应在 handler 返回后关闭
+     */
+    private static <T> T execute(Request request, ResponseHandler<T> handler) throws IOException {
+        IN_FLIGHT.incrementAndGet();
+        HttpConfig current = config;
+        Semaphore permits = hostPermits.computeIfAbsent(request.url().host(),
+                h -> new Semaphore(Math.max(1, current.getMaxRequestsPerHost())));
+        try {
+            WAITING.incrementAndGet();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("请求被中断");
+            } finally {
+                WAITING.decrementAndGet();
+            }
+            try {
+                throttle();
+                TOTAL_REQUESTS.incrementAndGet();
+                try (Response response = CLIENT.newCall(request).execute()) {
+                    return handler.handle(response);
+                }
+            } finally {
+                permits.release();
+            }
+        } finally {
+            IN_FLIGHT.decrementAndGet();
         }
     }
 
+    /**
+     * 响应处理回调
+     */
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * 连接池统计，用于评估高并发批量查询时的池大小
+     */
+    public static PoolStats getPoolStats() {
+        ConnectionPool pool = CLIENT.connectionPool();
+        return new PoolStats(pool.connectionCount(), pool.idleConnectionCount(),
+                IN_FLIGHT.get(), WAITING.get(), CONNECTIONS_OPENED.get(), TOTAL_REQUESTS.get());
+    }
+
+    /**
+     * 按 Content-Encoding 统计的响应数，用于确认压缩是否生效
+     */
+    public static Map<String, Long> getEncodingCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        ENCODING_COUNTS.forEach((encoding, count) -> counts.put(encoding, count.get()));
+        return counts;
+    }
+
+    /**
+     * 导出当前 Cookie（host -> Cookie 列表）的副本，用于持久化会话
+     */
+    public static Map<String, List<Cookie>> exportCookies() {
+        Map<String, List<Cookie>> copy = new HashMap<>();
+        COOKIE_STORE.forEach((host, cookies) -> copy.put(host, new ArrayList<>(cookies)));
+        return copy;
+    }
+
+    /**
+     * 写入一个 Cookie，替换名称、域和路径都相同的旧值；已过期的 Cookie 只删除旧值不写入
+     * 同时清理该主机下已过期的 Cookie
+     */
+    public static void addCookie(String host, Cookie cookie) {
+        long now = System.currentTimeMillis();
+        COOKIE_STORE.compute(host, (h, cookies) -> {
+            List<Cookie> list = cookies != null ? new ArrayList<>(cookies) : new ArrayList<>();
+            list.removeIf(c -> c.expiresAt() < now || (c.name().equals(cookie.name())
+                    && c.domain().equals(cookie.domain()) && c.path().equals(cookie.path())));
+            if (cookie.expiresAt() >= now) {
+                list.add(cookie);
+            }
+            return list;
+        });
+    }
+
+    /**
+     * 当前正在进行的请求数
+     */
+    public static int getInFlightCount() {
+        return IN_FLIGHT.get();
+    }
+
     private static String getUserAgent() {
         return "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
     }
@@ -134,9 +372,10 @@ public class HttpUtil {
     private static synchronized void throttle() {
         long now = System.currentTimeMillis();
         long elapsed = now - lastRequestTime;
-        if (elapsed < MIN_INTERVAL_MS) {
+        long interval = AppConfig.current().getThrottleIntervalMs();
+        if (elapsed < interval) {
             try {
-                Thread.sleep(MIN_INTERVAL_MS - elapsed);
+                Thread.sleep(interval - elapsed);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
@@ -0,0 +1,57 @@
+package com.ticket.util;
+
+/**
+ * HTTP 连接池统计快照
+ */
+public class PoolStats {
+
+    /** 连接池中的连接总数 */
+    private final int connectionCount;
+
+    /** 其中空闲的连接数 */
+    private final int idleConnectionCount;
+
+    /** 正在进行的请求数 */
+    private final int inFlightRequests;
+
+    /** 等待主机并发许可的请求数 */
+    private final int waitingRequests;
+
+    /** 累计建立的新连接数（含 TLS 握手） */
+    private final long connectionsOpened;
+
+    /** 累计请求数 */
+    private final long totalRequests;
+
+    public PoolStats(int connectionCount, int idleConnectionCount, int inFlightRequests,
+                     int waitingRequests, long connectionsOpened, long totalRequests) {
+        this.connectionCount = connectionCount;
+        this.idleConnectionCount = idleConnectionCount;
+        this.inFlightRequests = inFlightRequests;
+        this.waitingRequests = waitingRequests;
+        this.connectionsOpened = connectionsOpened;
+        this.totalRequests = totalRequests;
+    }
+
+    public int getConnectionCount() { return connectionCount; }
+    public int getIdleConnectionCount() { return idleConnectionCount; }
+    public int getInFlightRequests() { return inFlightRequests; }
+    public int getWaitingRequests() { return waitingRequests; }
+    public long getConnectionsOpened() { return connectionsOpened; }
+    public long getTotalRequests() { return totalRequests; }
+
+    /**
+     * 连接复用率：复用已有连接的请求占比
+     */
+    public double getReuseRatio() {
+        if (totalRequests == 0) return 0;
+        return 1.0 - (double) connectionsOpened / totalRequests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("连接 %d (空闲 %d) | 请求中 %d | 等待 %d | 新建连接 %d / 请求 %d (复用率 %.0f%%)",
+                connectionCount, idleConnectionCount, inFlightRequests, waitingRequests,
+                connectionsOpened, totalRequests, getReuseRatio() * 100);
+    }
+}
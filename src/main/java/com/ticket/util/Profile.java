@@ -0,0 +1,85 @@
+package com.ticket.util;
+
+import com.ticket.model.StopOrder;
+
+/**
+ * 预置的配置方案：在请求量和分析完整度之间取舍
+ */
+public enum Profile {
+    /** 与早期硬编码参数一致 */
+    DEFAULT("default"),
+
+    /** 快速：请求间隔短、少重试、少取样，适合临时查一下 */
+    FAST("fast"),
+
+    /** 礼貌：请求间隔长、并发低、重试等待长，适合长时间运行 */
+    POLITE("polite"),
+
+    /** 完整：检查所有后续站点、放宽查询上限，用请求量换完整结果 */
+    EXHAUSTIVE("exhaustive");
+
+    private final String name;
+
+    Profile(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * 生成该方案的配置（之后还可以被配置文件、环境变量和命令行覆盖）
+     */
+    public AppConfig create() {
+        AppConfig config = new AppConfig();
+        config.setProfile(name);
+        switch (this) {
+            case FAST:
+                config.setThrottleIntervalMs(300);
+                config.setRateLimitWaitsMs(new long[]{1000, 2000});
+                config.setMaxSampledStops(2);
+                config.setStopOrder(StopOrder.BINARY);
+                config.setPriceLookup(false);
+                config.setBuyShortMaxQueries(6);
+                config.setBuyShortMaxRouteLookups(6);
+                config.setTicketCacheTtlMs(5 * 60_000);
+                config.getHttp().setMaxRequestsPerHost(8);
+                config.getHttp().setConnectTimeoutSeconds(8);
+                config.getHttp().setReadTimeoutSeconds(8);
+                break;
+            case POLITE:
+                config.setThrottleIntervalMs(2500);
+                config.setRateLimitWaitsMs(new long[]{5000, 10000, 20000});
+                config.setMaxSampledStops(3);
+                config.setBuyShortMaxQueries(8);
+                config.setBuyShortMaxRouteLookups(8);
+                config.setTicketCacheTtlMs(2 * 60_000);
+                config.getHttp().setMaxRequestsPerHost(2);
+                config.setPrefetchRoutes(3);
+                config.setPrefetchIntervalMs(10_000);
+                config.setPrefetchMaxPerHour(20);
+                break;
+            case EXHAUSTIVE:
+                config.setRateLimitWaitsMs(new long[]{3000, 6000, 9000, 15000});
+                config.setMaxSampledStops(Integer.MAX_VALUE);
+                config.setBuyShortMaxQueries(40);
+                config.setBuyShortMaxRouteLookups(Integer.MAX_VALUE);
+                config.setTicketCacheTtlMs(10 * 60_000);
+                break;
+            default:
+                break;
+        }
+        return config;
+    }
+
+    /**
+     * 按名称查找方案（不区分大小写），找不到返回 null
+     */
+    public static Profile fromName(String name) {
+        for (Profile profile : values()) {
+            if (profile.name.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ticket.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.Cookie;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话快照 - 将 Cookie 和检测到的查询接口保存到本地，下次启动时直接复用，
+ * 省去初始化页面和接口检测两次请求
+ */
+public class SessionStore {
+
+    private SessionStore() {}
+
+    /** 会话文件含登录 Cookie，只允许所有者读写 */
+    private static final String FILE_PERMISSIONS = "rw-------";
+
+    /**
+     * 保存当前 Cookie 和查询接口
+     */
+    public static synchronized void save(String queryEndpoint) {
+        String sessionFile = AppConfig.current().getSessionFile();
+        if (sessionFile == null) return;
+
+        long now = System.currentTimeMillis();
+        JsonObject root = new JsonObject();
+        root.addProperty("savedAt", now);
+        // 12306 会话闲置一段时间后会失效
+        root.addProperty("expiresAt", now + AppConfig.current().getSessionTtlMs());
+        if (queryEndpoint != null) {
+            root.addProperty("endpoint", queryEndpoint);
+        }
+
+        JsonArray cookies = new JsonArray();
+        for (Map.Entry<String, List<Cookie>> entry : HttpUtil.exportCookies().entrySet()) {
+            for (Cookie cookie : entry.getValue()) {
+                if (cookie.expiresAt() < now) continue;
+                JsonObject obj = new JsonObject();
+                obj.addProperty("host", entry.getKey());
+                obj.addProperty("name", cookie.name());
+                obj.addProperty("value", cookie.value());
+                obj.addProperty("domain", cookie.domain());
+                obj.addProperty("path", cookie.path());
+                obj.addProperty("expiresAt", cookie.expiresAt());
+                obj.addProperty("secure", cookie.secure());
+                obj.addProperty("httpOnly", cookie.httpOnly());
+                obj.addProperty("hostOnly", cookie.hostOnly());
+                cookies.add(obj);
+            }
+        }
+        root.add("cookies", cookies);
+
+        // 先写入新建的临时文件再替换，已有文件的权限过宽时也一并收紧
+        Path path = Paths.get(sessionFile);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(temp);
+            createPrivateFile(temp);
+            Files.writeString(temp, root.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("会话保存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 创建仅所有者可读写的空文件（不支持 POSIX 权限的文件系统上按默认权限创建）
+     */
+    private static void createPrivateFile(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(FILE_PERMISSIONS)));
+        } else {
+            Files.createFile(file);
+        }
+    }
+
+    /**
+     * 恢复未过期的会话快照：Cookie 写回 HttpUtil，返回保存的查询接口
+     *
+     * @return 查询接口名，未启用快照、快照不存在、已过期或无法解析时返回 null
+     */
+    public static String restore() {
+        String sessionFile = AppConfig.current().getSessionFile();
+        if (sessionFile == null) return null;
+        Path path = Paths.get(sessionFile);
+        if (!Files.exists(path)) return null;
+
+        try {
+            JsonObject root = JsonParser.parseString(Files.readString(path, StandardCharsets.UTF_8)).getAsJsonObject();
+            long now = System.currentTimeMillis();
+            if (!root.has("expiresAt") || root.get("expiresAt").getAsLong() < now) return null;
+            if (!root.has("endpoint") || !root.has("cookies")) return null;
+
+            List<Cookie> restored = new ArrayList<>();
+            List<String> hosts = new ArrayList<>();
+            for (JsonElement element : root.getAsJsonArray("cookies")) {
+                JsonObject obj = element.getAsJsonObject();
+                long expiresAt = obj.get("expiresAt").getAsLong();
+                if (expiresAt < now) continue;
+
+                Cookie.Builder builder = new Cookie.Builder()
+                        .name(obj.get("name").getAsString())
+                        .value(obj.get("value").getAsString())
+                        .path(obj.get("path").getAsString())
+                        .expiresAt(expiresAt);
+                String domain = obj.get("domain").getAsString();
+                if (obj.get("hostOnly").getAsBoolean()) {
+                    builder.hostOnlyDomain(domain);
+                } else {
+                    builder.domain(domain);
+                }
+                if (obj.get("secure").getAsBoolean()) builder.secure();
+                if (obj.get("httpOnly").getAsBoolean()) builder.httpOnly();
+                restored.add(builder.build());
+                hosts.add(obj.get("host").getAsString());
+            }
+            if (restored.isEmpty()) return null;
+
+            for (int i = 0; i < restored.size(); i++) {
+                HttpUtil.addCookie(hosts.get(i), restored.get(i));
+            }
+            return root.get("endpoint").getAsString();
+        } catch (Exception e) {
+            System.err.println("会话快照读取失败: " + e.getMessage());
+            return null;
+        }
+    }
+}
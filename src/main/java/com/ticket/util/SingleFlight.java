@@ -0,0 +1,70 @@
+package com.ticket.util;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求合并 - 同一个 key 同时只执行一次加载，期间到达的调用者等待并共享同一结果
+ *
+ * @param <K> 请求键
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** 共享他人结果、未实际执行加载的调用次数 */
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * 执行加载；若同 key 的加载正在进行，则等待其结果而不是重复执行
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            sharedCount.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+            V value = loader.call();
+            created.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * 当前正在进行的加载数
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 累计被合并（未实际执行加载）的调用次数
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    private V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
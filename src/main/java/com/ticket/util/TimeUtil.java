@@ -0,0 +1,56 @@
+package com.ticket.util;
+
+import java.time.LocalDate;
+
+/**
+ * 时间工具 - 12306 返回的出发/到达时间和历时均为 "HH:mm" 格式
+ */
+public class TimeUtil {
+
+    private TimeUtil() {}
+
+    /**
+     * 将 "HH:mm" 转换为分钟数，无法解析时返回 -1
+     */
+    public static int toMinutes(String hhmm) {
+        if (hhmm == null || hhmm.length() < 4) return -1;
+        int colon = hhmm.indexOf(':');
+        if (colon <= 0) return -1;
+        try {
+            int hours = Integer.parseInt(hhmm.substring(0, colon));
+            int minutes = Integer.parseInt(hhmm.substring(colon + 1));
+            return hours * 60 + minutes;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 将分钟数格式化为 "HH:mm"（超过24小时按当日时刻显示）
+     */
+    public static String formatClock(int minutes) {
+        int m = ((minutes % 1440) + 1440) % 1440;
+        return String.format("%02d:%02d", m / 60, m % 60);
+    }
+
+    /**
+     * 将分钟数格式化为历时 "HH:mm"
+     */
+    public static String formatDuration(int minutes) {
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+
+    /**
+     * 日期加减天数 (yyyy-MM-dd)
+     */
+    public static String plusDays(String date, int days) {
+        return LocalDate.parse(date).plusDays(days).toString();
+    }
+
+    /**
+     * 日期 (yyyy-MM-dd) 是否早于今天
+     */
+    public static boolean isPastDate(String date) {
+        return date.compareTo(LocalDate.now().toString()) < 0;
+    }
+}
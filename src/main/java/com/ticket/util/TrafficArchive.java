@@ -0,0 +1,215 @@
+package com.ticket.util;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 12306 流量录制与回放，用于离线基准测试和解析器回归测试
+ *
+ * 录制：每个请求/响应（解压后的响应体、状态码、响应头和耗时）作为一个独立的 gzip 段追加到档案文件，
+ * 进程中途退出也不会损坏已写入的记录。
+ * 回放：按 方法 + URL 依次返回录制的响应，不访问网络；同一请求录制了多次时按录制顺序返回，
+ * 用完后重复最后一次。可按原始耗时或按比例缩放的耗时等待后返回。
+ */
+public class TrafficArchive {
+
+    private static final int MAGIC = 0x54524131;
+
+    /** 响应体已解压，这些头不再适用 */
+    private static final List<String> SKIPPED_HEADERS = List.of("content-encoding", "content-length", "transfer-encoding");
+
+    private TrafficArchive() {}
+
+    /**
+     * 录制拦截器：请求照常发出，响应写入档案后原样返回
+     */
+    public static Interceptor capture(Path archive) {
+        return chain -> {
+            Request request = chain.request();
+            long start = System.nanoTime();
+            Response response = chain.proceed(request);
+            ResponseBody body = response.body();
+            byte[] bytes = body != null ? body.bytes() : new byte[0];
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+
+            append(archive, new Entry(request.method(), request.url().toString(), response.code(),
+                    response.headers(), bytes, latencyMs));
+
+            MediaType contentType = body != null ? body.contentType() : null;
+            return response.newBuilder()
+                    .body(ResponseBody.create(bytes, contentType))
+                    .build();
+        };
+    }
+
+    /**
+     * 回放拦截器：从档案返回响应，不访问网络；档案中没有的请求返回 404
+     *
+     * @param latencyScale 耗时缩放比例，1 为按原始耗时等待，0 为不等待
+     */
+    public static Interceptor replay(Path archive, double latencyScale) throws IOException {
+        Map<String, Deque<Entry>> entries = load(archive);
+        return chain -> {
+            Request request = chain.request();
+            String key = request.method() + " " + request.url();
+            Entry entry;
+            synchronized (entries) {
+                Deque<Entry> queue = entries.get(key);
+                entry = queue == null ? null : queue.size() > 1 ? queue.poll() : queue.peek();
+            }
+
+            Response.Builder builder = new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1);
+            if (entry == null) {
+                return builder.code(404)
+                        .message("Not in archive")
+                        .body(ResponseBody.create(new byte[0], null))
+                        .build();
+            }
+
+            long delay = (long) (entry.latencyMs * latencyScale);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("回放被中断");
+                }
+            }
+            String contentType = entry.headers.get("Content-Type");
+            return builder.code(entry.status)
+                    .message("Replayed")
+                    .headers(entry.headers)
+                    .body(ResponseBody.create(entry.body, contentType != null ? MediaType.parse(contentType) : null))
+                    .build();
+        };
+    }
+
+    /**
+     * 读取档案中的全部记录，按 方法 + URL 分组并保持录制顺序
+     */
+    public static Map<String, Deque<Entry>> load(Path archive) throws IOException {
+        Map<String, Deque<Entry>> entries = new HashMap<>();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(archive));
+             DataInputStream in = new DataInputStream(new GZIPInputStream(file))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (magic != MAGIC) {
+                    throw new IOException("流量档案格式错误: " + archive);
+                }
+                Entry entry = readEntry(in);
+                entries.computeIfAbsent(entry.method + " " + entry.url, k -> new ArrayDeque<>()).add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static synchronized void append(Path archive, Entry entry) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(entry.body.length / 4 + 256);
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(entry.method);
+            out.writeUTF(entry.url);
+            out.writeShort(entry.status);
+            out.writeLong(entry.latencyMs);
+            List<String> names = new ArrayList<>();
+            for (String name : entry.headers.names()) {
+                if (!SKIPPED_HEADERS.contains(name.toLowerCase())) {
+                    names.add(name);
+                }
+            }
+            int count = 0;
+            for (String name : names) {
+                count += entry.headers.values(name).size();
+            }
+            out.writeShort(count);
+            for (String name : names) {
+                for (String value : entry.headers.values(name)) {
+                    out.writeUTF(name);
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+        }
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(archive,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            buffer.writeTo(file);
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        String method = in.readUTF();
+        String url = in.readUTF();
+        int status = in.readShort();
+        long latencyMs = in.readLong();
+        int count = in.readShort();
+        Headers.Builder headers = new Headers.Builder();
+        for (int i = 0; i < count; i++) {
+            headers.addUnsafeNonAscii(in.readUTF(), in.readUTF());
+        }
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new Entry(method, url, status, headers.build(), body, latencyMs);
+    }
+
+    /**
+     * 一次请求/响应记录
+     */
+    public static class Entry {
+        private final String method;
+        private final String url;
+        private final int status;
+        private final Headers headers;
+        private final byte[] body;
+        private final long latencyMs;
+
+        public Entry(String method, String url, int status, Headers headers, byte[] body, long latencyMs) {
+            this.method = method;
+            this.url = url;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.latencyMs = latencyMs;
+        }
+
+        public String getMethod() { return method; }
+        public String getUrl() { return url; }
+        public int getStatus() { return status; }
+        public Headers getHeaders() { return headers; }
+        public byte[] getBody() { return body; }
+        public long getLatencyMs() { return latencyMs; }
+    }
+}
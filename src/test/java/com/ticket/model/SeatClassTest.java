@@ -0,0 +1,55 @@
+package com.ticket.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatClassTest {
+
+    @Test
+    void encodesDisplayValues() {
+        assertEquals(SeatClass.PLENTY, SeatClass.encode("有"));
+        assertEquals(SeatClass.SOLD_OUT, SeatClass.encode("无"));
+        assertEquals(SeatClass.NOT_ON_SALE, SeatClass.encode("*"));
+        assertEquals(SeatClass.NOT_OFFERED, SeatClass.encode("--"));
+        assertEquals(SeatClass.NOT_OFFERED, SeatClass.encode(""));
+        assertEquals(SeatClass.NOT_OFFERED, SeatClass.encode(null));
+        assertEquals(SeatClass.NOT_OFFERED, SeatClass.encode("候补"));
+        assertEquals(12, SeatClass.encode("12"));
+        assertEquals(Byte.MAX_VALUE, SeatClass.encode("999"));
+    }
+
+    @Test
+    void decodesBackToDisplayValues() {
+        for (String value : new String[]{"有", "无", "*", "--", "1", "12", "127"}) {
+            assertEquals(value, SeatClass.decode(SeatClass.encode(value)));
+        }
+        assertEquals("--", SeatClass.decode((byte) -100));
+    }
+
+    @Test
+    void availableOnlyWithTickets() {
+        assertTrue(SeatClass.isAvailable(SeatClass.encode("有")));
+        assertTrue(SeatClass.isAvailable(SeatClass.encode("1")));
+        assertFalse(SeatClass.isAvailable(SeatClass.encode("无")));
+        assertFalse(SeatClass.isAvailable(SeatClass.encode("*")));
+        assertFalse(SeatClass.isAvailable(SeatClass.encode("--")));
+    }
+
+    @Test
+    void readsFieldAndLooksUpLabel() {
+        TrainInfo train = new TrainInfo();
+        train.setSecondClassSeat("有");
+        train.setNoSeat("5");
+        assertEquals("有", SeatClass.SECOND_CLASS.valueOf(train));
+        assertEquals("5", SeatClass.NO_SEAT.valueOf(train));
+
+        for (SeatClass seatClass : SeatClass.values()) {
+            assertEquals(seatClass, SeatClass.fromLabel(seatClass.getLabel()));
+        }
+        assertNull(SeatClass.fromLabel("包厢"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.ticket.service;
+
+import com.ticket.model.TrainInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HotRoutePrefetcherTest {
+
+    private static final String TODAY = LocalDate.now().toString();
+    private static final String YESTERDAY = LocalDate.now().minusDays(1).toString();
+
+    private static TrainInfo train(String trainNo) {
+        TrainInfo train = new TrainInfo();
+        train.setTrainNo(trainNo);
+        return train;
+    }
+
+    @Test
+    void queuesEachTrainAndDateOnce() {
+        HotRoutePrefetcher prefetcher = new HotRoutePrefetcher(null, null);
+        for (int i = 0; i < 5; i++) {
+            prefetcher.enqueueRoute(train("240000G1010"), TODAY);
+        }
+        prefetcher.enqueueRoute(train("240000G1010"), LocalDate.now().plusDays(1).toString());
+
+        assertEquals(2, prefetcher.getPendingRouteCount());
+    }
+
+    @Test
+    void staysBoundedAndDropsOldest() {
+        HotRoutePrefetcher prefetcher = new HotRoutePrefetcher(null, null);
+        int total = HotRoutePrefetcher.MAX_PENDING_ROUTES + 50;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < total; i++) {
+                prefetcher.enqueueRoute(train("T" + i), TODAY);
+            }
+        }
+
+        assertEquals(HotRoutePrefetcher.MAX_PENDING_ROUTES, prefetcher.getPendingRouteCount());
+        assertEquals("T50", prefetcher.pollRoute().train.getTrainNo());
+    }
+
+    @Test
+    void skipsPastDatesWhenPolling() {
+        HotRoutePrefetcher prefetcher = new HotRoutePrefetcher(null, null);
+        prefetcher.enqueueRoute(train("OLD1"), YESTERDAY);
+        prefetcher.enqueueRoute(train("NEW1"), TODAY);
+        prefetcher.enqueueRoute(train("OLD2"), YESTERDAY);
+
+        HotRoutePrefetcher.RouteTask task = prefetcher.pollRoute();
+        assertEquals("NEW1", task.train.getTrainNo());
+        assertEquals(TODAY, task.date);
+        assertNull(prefetcher.pollRoute());
+        assertEquals(0, prefetcher.getPendingRouteCount());
+    }
+}
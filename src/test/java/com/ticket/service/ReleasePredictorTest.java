@@ -0,0 +1,119 @@
+package com.ticket.service;
+
+import com.ticket.model.ReleaseWindow;
+import com.ticket.model.TrainInfo;
+import com.ticket.store.AvailabilityLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReleasePredictorTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final String DATE = TODAY.plusDays(3).toString();
+
+    @TempDir
+    Path dir;
+
+    private AvailabilityLog log;
+    private ReleasePredictor predictor;
+
+    @BeforeEach
+    void openLog() throws Exception {
+        log = new AvailabilityLog(dir);
+        predictor = new ReleasePredictor(log);
+    }
+
+    @AfterEach
+    void closeLog() throws Exception {
+        log.close();
+    }
+
+    private static long at(int hour, int minute) {
+        return TODAY.atTime(hour, minute).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void observe(String code, String secondClassSeat, long timestamp) {
+        TrainInfo train = new TrainInfo();
+        train.setStationTrainCode(code);
+        train.setSecondClassSeat(secondClassSeat);
+        log.onTickets("BJP", "SHH", DATE, List.of(train), timestamp);
+    }
+
+    private void awaitWritten(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (log.getWrittenCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, log.getWrittenCount());
+    }
+
+    /**
+     * 全天每小时一次无票，9 点和 10 点之间三次 无票 → 有票
+     */
+    private void recordMorningReleases() throws InterruptedException {
+        for (int hour = 0; hour < 9; hour++) {
+            observe("G1", "无", at(hour, 0));
+        }
+        observe("G1", "有", at(9, 0));
+        observe("G1", "无", at(9, 20));
+        observe("G1", "3", at(9, 40));
+        observe("G1", "无", at(10, 0));
+        observe("G1", "有", at(10, 30));
+        for (int hour = 11; hour < 24; hour++) {
+            observe("G1", "无", at(hour, 0));
+        }
+        awaitWritten(27);
+    }
+
+    @Test
+    void findsReleaseWindow() throws Exception {
+        recordMorningReleases();
+
+        assertEquals(27, predictor.update());
+        assertEquals(0, predictor.update());
+
+        List<ReleaseWindow> windows = predictor.predict("BJP", "SHH", "G1");
+        assertEquals(1, windows.size());
+        assertEquals(9, windows.get(0).getStartHour());
+        assertEquals(11, windows.get(0).getEndHour());
+        assertEquals(3, windows.get(0).getReleases());
+        // 9 点三次、10 点两次查询，各按一个观测小时计
+        assertEquals(2, windows.get(0).getObservations());
+        assertEquals(3, predictor.typicalDaysBefore("BJP", "SHH", "G1"));
+    }
+
+    @Test
+    void suggestsPollInterval() throws Exception {
+        recordMorningReleases();
+        predictor.update();
+
+        assertEquals(ReleasePredictor.FAST_POLL_MS, predictor.suggestPollIntervalMs("BJP", "SHH", "G1", at(9, 30)));
+        assertEquals(ReleasePredictor.SLOW_POLL_MS, predictor.suggestPollIntervalMs("BJP", "SHH", "G1", at(15, 0)));
+        assertEquals(ReleasePredictor.DEFAULT_POLL_MS, predictor.suggestPollIntervalMs("SHH", "BJP", "G1", at(9, 30)));
+    }
+
+    @Test
+    void fallsBackToRouteStatisticsForSparseTrain() throws Exception {
+        recordMorningReleases();
+        observe("G3", "无", at(9, 5));
+        observe("G3", "有", at(9, 10));
+        awaitWritten(29);
+        predictor.update();
+
+        // G3 自身只有一次放票，使用整条线路的统计
+        List<ReleaseWindow> windows = predictor.predict("BJP", "SHH", "G3");
+        assertEquals(1, windows.size());
+        assertTrue(windows.get(0).contains(9));
+        assertEquals(-1, predictor.typicalDaysBefore("SHH", "BJP", "G3"));
+    }
+}
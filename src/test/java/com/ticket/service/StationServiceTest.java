@@ -0,0 +1,59 @@
+package com.ticket.service;
+
+import com.ticket.model.Station;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StationServiceTest {
+
+    private static Station station(String name, String code) {
+        return new Station("bj", name, code, "pinyin", "py", "0");
+    }
+
+    private static List<Station> initial() {
+        return new ArrayList<>(List.of(
+                station("北京南", "VNP"),
+                station("上海虹桥", "AOH"),
+                station("南京南", "NKH")));
+    }
+
+    @Test
+    void identicalRefreshKeepsEveryEntry() {
+        StationService service = new StationService();
+        assertEquals(3, service.load(initial()));
+        Station beijing = service.getByCode("VNP");
+
+        assertEquals(0, service.load(initial()));
+        assertSame(beijing, service.getByCode("VNP"));
+        assertSame(beijing, service.getByName("北京南"));
+    }
+
+    @Test
+    void appliesOnlyChangedStations() {
+        StationService service = new StationService();
+        service.load(initial());
+        Station beijing = service.getByCode("VNP");
+
+        List<Station> fresh = new ArrayList<>(List.of(
+                station("北京南", "VNP"),
+                station("上海虹桥站", "AOH"),
+                station("杭州东", "HGH")));
+        // 改名 1 + 新增 1 + 删除 1
+        assertEquals(3, service.load(fresh));
+
+        assertSame(beijing, service.getByCode("VNP"));
+        assertSame(beijing, service.getByName("北京南"));
+        assertEquals("上海虹桥站", service.getByCode("AOH").getName());
+        assertNull(service.getByName("上海虹桥"));
+        assertSame(service.getByCode("AOH"), service.getByName("上海虹桥站"));
+        assertEquals("HGH", service.getByName("杭州东").getCode());
+        assertNull(service.getByCode("NKH"));
+        assertNull(service.getByName("南京南"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.ticket.service;
+
+import com.ticket.model.StopOrder;
+import com.ticket.model.TrainInfo;
+import com.ticket.model.TrainStop;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StopSearchTest {
+
+    private static List<TrainStop> stops(int count) {
+        List<TrainStop> stops = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TrainStop stop = new TrainStop();
+            stop.setStationNo(i);
+            stop.setStationName("站" + i);
+            stops.add(stop);
+        }
+        return stops;
+    }
+
+    /**
+     * 模拟查询：站序不小于 firstAvailable 的延伸站有票，返回依次查询的站序
+     */
+    private static List<Integer> run(StopSearch search, int firstAvailable) {
+        List<Integer> probed = new ArrayList<>();
+        TrainStop stop;
+        while ((stop = search.next()) != null) {
+            probed.add(stop.getStationNo());
+            search.report(stop, stop.getStationNo() >= firstAvailable ? new TrainInfo() : null);
+        }
+        return probed;
+    }
+
+    @Test
+    void terminusStopsAfterTerminusHit() {
+        List<TrainStop> stops = stops(10);
+        StopSearch search = StopSearch.create(StopOrder.TERMINUS, stops, 4);
+
+        assertEquals(List.of(9), run(search, 3));
+        assertEquals(9, search.getBestStop().getStationNo());
+        assertEquals(1, search.getProbes());
+    }
+
+    @Test
+    void terminusProbesSampledStopsWhenTerminusSoldOut() {
+        List<TrainStop> stops = stops(10);
+        StopSearch search = StopSearch.create(StopOrder.TERMINUS, stops, 4);
+
+        List<Integer> probed = run(search, 10);
+        assertEquals(5, probed.size());
+        assertEquals(9, probed.get(0));
+        assertNull(search.getBestStop());
+    }
+
+    @Test
+    void nearestProbesInStationOrder() {
+        List<TrainStop> stops = stops(10);
+        StopSearch search = StopSearch.create(StopOrder.NEAREST, stops, 4);
+
+        List<Integer> probed = run(search, 4);
+        for (int i = 1; i < probed.size(); i++) {
+            assertTrue(probed.get(i - 1) < probed.get(i));
+        }
+        assertTrue(search.getBestStop().getStationNo() >= 4);
+        assertEquals(probed.get(probed.size() - 1), search.getBestStop().getStationNo());
+    }
+
+    @Test
+    void binaryFindsNearestAvailableStop() {
+        List<TrainStop> stops = stops(16);
+        StopSearch search = StopSearch.create(StopOrder.BINARY, stops, 8);
+
+        List<Integer> probed = run(search, 6);
+        assertEquals(15, probed.get(0));
+        assertEquals(6, search.getBestStop().getStationNo());
+        assertTrue(search.getProbes() <= 1 + 4);
+    }
+
+    @Test
+    void binaryGivesUpWhenTerminusSoldOut() {
+        StopSearch search = StopSearch.create(StopOrder.BINARY, stops(16), 8);
+
+        assertEquals(List.of(15), run(search, 16));
+        assertNull(search.getBestStop());
+    }
+
+    @Test
+    void binaryRespectsBudget() {
+        StopSearch search = StopSearch.create(StopOrder.BINARY, stops(64), 2);
+
+        run(search, 1);
+        assertEquals(3, search.getProbes());
+        assertTrue(search.getBestStop().getStationNo() >= 1);
+    }
+
+    @Test
+    void unlimitedBudgetDoesNotOverflow() {
+        StopSearch binary = StopSearch.create(StopOrder.BINARY, stops(16), Integer.MAX_VALUE);
+        run(binary, 6);
+        assertEquals(6, binary.getBestStop().getStationNo());
+
+        StopSearch nearest = StopSearch.create(StopOrder.NEAREST, stops(16), Integer.MAX_VALUE);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), run(nearest, 6));
+    }
+}
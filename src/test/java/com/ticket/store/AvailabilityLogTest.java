@@ -0,0 +1,146 @@
+package com.ticket.store;
+
+import com.ticket.model.Observation;
+import com.ticket.model.SeatClass;
+import com.ticket.model.TrainInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityLogTest {
+
+    private static final String TOMORROW = LocalDate.now().plusDays(1).toString();
+    private static final String YESTERDAY = LocalDate.now().minusDays(1).toString();
+
+    /** 整点时刻，保证同一批写入落在同一小时内 */
+    private static final long NOW = System.currentTimeMillis() / 3_600_000 * 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    private static TrainInfo train(String code, String secondClassSeat) {
+        TrainInfo train = new TrainInfo();
+        train.setStationTrainCode(code);
+        train.setSecondClassSeat(secondClassSeat);
+        return train;
+    }
+
+    /** 逐条写入（同一时刻），等写线程写完 */
+    private static void write(AvailabilityLog log, String date, String code, String... seats) throws InterruptedException {
+        writeAt(log, NOW, 0, date, code, seats);
+    }
+
+    /** 逐条写入，第 i 条的时间为 start + i * stepMs */
+    private static void writeAt(AvailabilityLog log, long start, long stepMs, String date, String code,
+                                String... seats) throws InterruptedException {
+        long expected = log.getWrittenCount() + seats.length;
+        for (int i = 0; i < seats.length; i++) {
+            log.onTickets("BJP", "SHH", date, List.of(train(code, seats[i])), start + i * stepMs);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (log.getWrittenCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, log.getWrittenCount());
+    }
+
+    private static List<Observation> all(AvailabilityLog log) throws IOException {
+        List<Observation> result = new ArrayList<>();
+        log.scan(0, result::add);
+        return result;
+    }
+
+    private static List<Integer> secondClass(List<Observation> observations) {
+        List<Integer> result = new ArrayList<>();
+        for (Observation observation : observations) {
+            result.add((int) observation.getSeat(SeatClass.SECOND_CLASS));
+        }
+        return result;
+    }
+
+    @Test
+    void replaysAndContinuesPartialSegmentAfterReopen() throws Exception {
+        try (AvailabilityLog log = new AvailabilityLog(dir, 100)) {
+            write(log, TOMORROW, "G1", "5", "无", "有");
+        }
+        try (AvailabilityLog log = new AvailabilityLog(dir, 100)) {
+            assertEquals(1, log.getSegmentCount());
+            write(log, TOMORROW, "G1", "3");
+
+            List<Observation> observations = all(log);
+            assertEquals(4, observations.size());
+            for (int i = 0; i < observations.size(); i++) {
+                assertEquals(i + 1, observations.get(i).getSeq());
+            }
+            assertEquals(List.of(5, (int) SeatClass.SOLD_OUT, (int) SeatClass.PLENTY, 3), secondClass(observations));
+            assertEquals(4, log.query("BJP", "SHH", TOMORROW, "G1").size());
+            assertEquals(0, log.query("BJP", "SHH", TOMORROW, "G2").size());
+        }
+    }
+
+    @Test
+    void scanResumesAfterSeq() throws Exception {
+        try (AvailabilityLog log = new AvailabilityLog(dir, 100)) {
+            write(log, TOMORROW, "G1", "1", "2");
+            long last = log.scan(0, observation -> { });
+            write(log, TOMORROW, "G1", "3");
+
+            List<Observation> newer = new ArrayList<>();
+            assertEquals(3, log.scan(last, newer::add));
+            assertEquals(List.of(3), secondClass(newer));
+        }
+    }
+
+    @Test
+    void rollCompactsUnchangedRecords() throws Exception {
+        try (AvailabilityLog log = new AvailabilityLog(dir, 2)) {
+            // 第 9 条写入前封存第 4 个分段，触发压缩
+            write(log, TOMORROW, "G1", "1", "1", "2", "2", "3", "3", "4", "4", "5");
+
+            assertEquals(2, log.getSegmentCount());
+            List<Observation> observations = all(log);
+            assertEquals(List.of(1, 2, 3, 4, 5), secondClass(observations));
+            assertEquals(9, observations.get(observations.size() - 1).getSeq());
+        }
+    }
+
+    @Test
+    void compactionKeepsOneRecordPerHour() throws Exception {
+        try (AvailabilityLog log = new AvailabilityLog(dir, 2)) {
+            // 余票不变，但每条相隔半小时：每小时保留第一条
+            writeAt(log, NOW, 30 * 60_000, TOMORROW, "G1", "1", "1", "1", "1", "1", "1", "1", "1", "1");
+
+            assertEquals(2, log.getSegmentCount());
+            List<Observation> observations = all(log);
+            assertEquals(List.of(NOW, NOW + 60 * 60_000, NOW + 2 * 60 * 60_000, NOW + 3 * 60 * 60_000,
+                    NOW + 4 * 60 * 60_000), observations.stream().map(Observation::getTimestamp).toList());
+        }
+    }
+
+    @Test
+    void compactsOnOpenAndDropsPastDates() throws Exception {
+        try (AvailabilityLog log = new AvailabilityLog(dir, 2)) {
+            write(log, YESTERDAY, "G9", "1", "2");
+            write(log, TOMORROW, "G1", "1", "1", "2", "2", "3", "3");
+            assertEquals(4, log.getSegmentCount());
+        }
+        try (AvailabilityLog log = new AvailabilityLog(dir, 2)) {
+            assertEquals(2, log.getSegmentCount());
+            List<Observation> observations = all(log);
+            assertEquals(List.of(1, 2, 3), secondClass(observations));
+            assertTrue(observations.stream().allMatch(o -> o.getDate().equals(TOMORROW)));
+
+            write(log, TOMORROW, "G1", "4");
+            Observation latest = all(log).get(3);
+            assertEquals(9, latest.getSeq());
+        }
+    }
+}
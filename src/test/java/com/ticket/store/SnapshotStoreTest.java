@@ -0,0 +1,53 @@
+package com.ticket.store;
+
+import com.ticket.model.SeatClass;
+import com.ticket.model.TrainInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnapshotStoreTest {
+
+    private static final String DATE = LocalDate.now().plusDays(1).toString();
+
+    private static TrainInfo train(String code, String secondClassSeat) {
+        TrainInfo train = new TrainInfo();
+        train.setStationTrainCode(code);
+        train.setSecondClassSeat(secondClassSeat);
+        return train;
+    }
+
+    @Test
+    void filtersSnapshotsByTime() {
+        SnapshotStore store = new SnapshotStore();
+        store.record("BJP", "SHH", DATE, List.of(train("G1", "无"), train("G3", "5")), 100);
+        store.record("BJP", "SHH", DATE, List.of(train("G1", "有"), train("G3", "无")), 200);
+        store.record("BJP", "SHH", DATE, List.of(train("G5", "2")), 300);
+
+        assertEquals(List.of("G3"), store.trainsWithSeat("BJP", "SHH", DATE, SeatClass.SECOND_CLASS, 0, 200));
+        assertEquals(List.of("G1"), store.trainsWithSeat("BJP", "SHH", DATE, SeatClass.SECOND_CLASS, 200, 300));
+        assertEquals(List.of("G1", "G3", "G5"),
+                store.trainsWithSeat("BJP", "SHH", DATE, SeatClass.SECOND_CLASS, 0, Long.MAX_VALUE));
+        assertEquals(List.of(), store.trainsWithSeat("BJP", "SHH", DATE, SeatClass.BUSINESS, 0, Long.MAX_VALUE));
+
+        assertEquals(3, store.getSnapshotCount("BJP", "SHH", DATE));
+        assertEquals(5, store.getRowCount());
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        SnapshotStore store = new SnapshotStore();
+        for (int i = 0; i < 200; i++) {
+            store.record("BJP", "SHH", DATE, List.of(train("G1", "无"), train("G" + (i + 2), i == 150 ? "1" : "无")), i);
+        }
+
+        assertEquals(200, store.getSnapshotCount("BJP", "SHH", DATE));
+        assertEquals(400, store.getRowCount());
+        assertEquals(List.of("G152"), store.trainsWithSeat("BJP", "SHH", DATE, SeatClass.SECOND_CLASS, 0, 200));
+        assertEquals(List.of(), store.trainsWithSeat("BJP", "SHH", DATE, SeatClass.SECOND_CLASS, 151, 200));
+        assertEquals(List.of(), store.trainsWithSeat("SHH", "BJP", DATE, SeatClass.SECOND_CLASS, 0, 200));
+    }
+}
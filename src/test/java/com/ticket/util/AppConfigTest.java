@@ -0,0 +1,32 @@
+package com.ticket.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppConfigTest {
+
+    @Test
+    void rejectsNonPositiveConcurrency() {
+        AppConfig config = new AppConfig();
+        for (String key : new String[]{"http.maxRequestsPerHost", "http.maxRequests"}) {
+            for (String value : new String[]{"0", "-1"}) {
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> config.set(key, value));
+                assertTrue(e.getMessage().contains(key));
+            }
+        }
+        assertEquals(5, config.getHttp().getMaxRequestsPerHost());
+    }
+
+    @Test
+    void acceptsPositiveConcurrency() {
+        AppConfig config = new AppConfig();
+        config.set("http.maxRequestsPerHost", " 3 ");
+        config.set("http.maxRequests", "16");
+
+        assertEquals(3, config.getHttp().getMaxRequestsPerHost());
+        assertEquals(16, config.getHttp().getMaxRequests());
+    }
+}
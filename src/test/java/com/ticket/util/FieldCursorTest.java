@@ -0,0 +1,85 @@
+package com.ticket.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldCursorTest {
+
+    private static final String[] COMMON = {"有", "无", "*"};
+
+    @Test
+    void splitsFieldsIncludingTrailingEmpty() {
+        FieldCursor fields = new FieldCursor('|').reset("a||bc|");
+
+        assertEquals(4, fields.count());
+        assertEquals("a", fields.get(0));
+        assertTrue(fields.isEmpty(1));
+        assertEquals("bc", fields.get(2));
+        assertEquals(2, fields.length(2));
+        assertEquals("", fields.get(3));
+    }
+
+    @Test
+    void emptyRecordHasOneEmptyField() {
+        FieldCursor fields = new FieldCursor('|').reset("");
+
+        assertEquals(1, fields.count());
+        assertTrue(fields.isEmpty(0));
+    }
+
+    @Test
+    void outOfRangeReadsAsEmpty() {
+        FieldCursor fields = new FieldCursor('|').reset("a|b");
+
+        assertEquals("", fields.get(5));
+        assertTrue(fields.isEmpty(2));
+        assertEquals(-1, fields.getInt(9, -1));
+        assertFalse(fields.equalsTo(3, "a"));
+    }
+
+    @Test
+    void reusesCommonValues() {
+        FieldCursor fields = new FieldCursor('|').reset(new StringBuilder("有|12|无"));
+
+        assertSame(COMMON[0], fields.get(0, COMMON));
+        assertEquals("12", fields.get(1, COMMON));
+        assertSame(COMMON[1], fields.get(2, COMMON));
+        assertTrue(fields.equalsTo(1, "12"));
+        assertFalse(fields.equalsTo(1, "1"));
+    }
+
+    @Test
+    void parsesNonNegativeIntegers() {
+        FieldCursor fields = new FieldCursor(',').reset("0,05,123,-1,1a,,1234567890");
+
+        assertEquals(0, fields.getInt(0, -1));
+        assertEquals(5, fields.getInt(1, -1));
+        assertEquals(123, fields.getInt(2, -1));
+        assertEquals(-1, fields.getInt(3, -1));
+        assertEquals(-1, fields.getInt(4, -1));
+        assertEquals(-1, fields.getInt(5, -1));
+        // 超过 9 位按无法解析处理，避免溢出
+        assertEquals(-1, fields.getInt(6, -1));
+    }
+
+    @Test
+    void growsBeyondInitialFieldCapacityAndResets() {
+        StringBuilder record = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) record.append('|');
+            record.append(i);
+        }
+        FieldCursor fields = new FieldCursor('|').reset(record.toString());
+        assertEquals(100, fields.count());
+        assertEquals(99, fields.getInt(99, -1));
+
+        fields.reset("x|y");
+        assertEquals(2, fields.count());
+        assertEquals("y", fields.get(1));
+        assertEquals("", fields.get(99));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ticket.util;
+
+import okhttp3.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SessionStoreTest {
+
+    private static final long HOUR_MS = 60 * 60_000;
+
+    @TempDir
+    Path dir;
+
+    private Path sessionFile;
+
+    @BeforeEach
+    void useTempSessionFile() {
+        sessionFile = dir.resolve("session.dat");
+        AppConfig config = new AppConfig();
+        config.setSessionFile(sessionFile.toString());
+        AppConfig.apply(config);
+    }
+
+    @AfterEach
+    void restoreDefaults() {
+        AppConfig.apply(new AppConfig());
+    }
+
+    private static Cookie cookie(String name, String value, String path, long expiresAt) {
+        return new Cookie.Builder()
+                .name(name)
+                .value(value)
+                .domain("kyfw.12306.cn")
+                .path(path)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void savesOwnerOnlyFileAndRestoresEndpoint() throws Exception {
+        HttpUtil.addCookie("save.12306.cn", cookie("JSESSIONID", "abc", "/otn", System.currentTimeMillis() + HOUR_MS));
+        SessionStore.save("queryZ");
+
+        if (sessionFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(sessionFile)));
+        }
+        assertEquals("queryZ", SessionStore.restore());
+    }
+
+    @Test
+    void tightensExistingFilePermissions() throws Exception {
+        assumeTrue(sessionFile.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Files.writeString(sessionFile, "{}");
+        Files.setPosixFilePermissions(sessionFile, PosixFilePermissions.fromString("rw-r--r--"));
+
+        SessionStore.save("queryA");
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(sessionFile)));
+    }
+
+    @Test
+    void mergesCookiesByNameDomainAndPath() {
+        String host = "merge.12306.cn";
+        long expiresAt = System.currentTimeMillis() + HOUR_MS;
+        HttpUtil.addCookie(host, cookie("route", "1", "/otn", expiresAt));
+        HttpUtil.addCookie(host, cookie("route", "2", "/", expiresAt));
+        HttpUtil.addCookie(host, cookie("route", "3", "/otn", expiresAt));
+
+        List<Cookie> cookies = HttpUtil.exportCookies().get(host);
+        assertEquals(2, cookies.size());
+        assertEquals("2", cookies.get(0).value());
+        assertEquals("3", cookies.get(1).value());
+    }
+
+    @Test
+    void expiredCookieRemovesStoredValue() {
+        String host = "expire.12306.cn";
+        long now = System.currentTimeMillis();
+        HttpUtil.addCookie(host, cookie("tk", "1", "/", now + HOUR_MS));
+        HttpUtil.addCookie(host, cookie("tk", "", "/", now - HOUR_MS));
+
+        assertEquals(0, HttpUtil.exportCookies().get(host).size());
+    }
+
+    @Test
+    void restoreSkipsExpiredCookies() throws Exception {
+        long now = System.currentTimeMillis();
+        String json = "{\"savedAt\":" + now + ",\"expiresAt\":" + (now + HOUR_MS) + ",\"endpoint\":\"queryZ\","
+                + "\"cookies\":[{\"host\":\"restore.12306.cn\",\"name\":\"tk\",\"value\":\"old\","
+                + "\"domain\":\"kyfw.12306.cn\",\"path\":\"/\",\"expiresAt\":" + (now - 1000)
+                + ",\"secure\":false,\"httpOnly\":false,\"hostOnly\":false}]}";
+        Files.writeString(sessionFile, json, StandardCharsets.UTF_8);
+
+        assertNull(SessionStore.restore());
+        assertNull(HttpUtil.exportCookies().get("restore.12306.cn"));
+    }
+}
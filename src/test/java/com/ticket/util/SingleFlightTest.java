@@ -0,0 +1,80 @@
+package com.ticket.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<Integer> first = executor.submit(() -> flights.execute("k", () -> {
+                started.countDown();
+                release.await();
+                return loads.incrementAndGet();
+            }));
+            started.await();
+
+            List<Future<Integer>> others = new ArrayList<>();
+            for (int i = 1; i < callers; i++) {
+                others.add(executor.submit(() -> flights.execute("k", loads::incrementAndGet)));
+            }
+            // 等其余调用者都进入等待
+            long deadline = System.currentTimeMillis() + 5000;
+            while (flights.getSharedCount() < callers - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> other : others) {
+                assertEquals(1, other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(callers - 1, flights.getSharedCount());
+            assertEquals(0, flights.inFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sequentialCallsLoadAgain() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, flights.execute("k", loads::incrementAndGet));
+        assertEquals(2, flights.execute("k", loads::incrementAndGet));
+        assertEquals(0, flights.getSharedCount());
+    }
+
+    @Test
+    void failureIsRethrownAndNotRemembered() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+
+        assertThrows(IOException.class, () -> flights.execute("k", () -> {
+            throw new IOException("限流");
+        }));
+        assertEquals(0, flights.inFlightCount());
+        assertEquals(7, flights.execute("k", () -> 7));
+    }
+}
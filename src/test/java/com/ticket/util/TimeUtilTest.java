@@ -0,0 +1,58 @@
+package com.ticket.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeUtilTest {
+
+    @Test
+    void parsesClockAndDuration() {
+        assertEquals(0, TimeUtil.toMinutes("00:00"));
+        assertEquals(8 * 60 + 5, TimeUtil.toMinutes("08:05"));
+        assertEquals(24 * 60, TimeUtil.toMinutes("24:00"));
+        assertEquals(26 * 60 + 30, TimeUtil.toMinutes("26:30"));
+    }
+
+    @Test
+    void rejectsMalformedTimes() {
+        assertEquals(-1, TimeUtil.toMinutes(null));
+        assertEquals(-1, TimeUtil.toMinutes(""));
+        assertEquals(-1, TimeUtil.toMinutes("--"));
+        assertEquals(-1, TimeUtil.toMinutes("0800"));
+        assertEquals(-1, TimeUtil.toMinutes(":0800"));
+        assertEquals(-1, TimeUtil.toMinutes("ab:cd"));
+    }
+
+    @Test
+    void formatsClockWithinDay() {
+        assertEquals("08:05", TimeUtil.formatClock(8 * 60 + 5));
+        assertEquals("01:30", TimeUtil.formatClock(25 * 60 + 30));
+        assertEquals("23:00", TimeUtil.formatClock(-60));
+    }
+
+    @Test
+    void formatsDurationBeyondDay() {
+        assertEquals("00:45", TimeUtil.formatDuration(45));
+        assertEquals("26:30", TimeUtil.formatDuration(26 * 60 + 30));
+    }
+
+    @Test
+    void addsDaysAcrossMonthAndYear() {
+        assertEquals("2024-03-01", TimeUtil.plusDays("2024-02-29", 1));
+        assertEquals("2025-01-01", TimeUtil.plusDays("2024-12-31", 1));
+        assertEquals("2024-12-31", TimeUtil.plusDays("2025-01-01", -1));
+    }
+
+    @Test
+    void comparesWithToday() {
+        LocalDate today = LocalDate.now();
+        assertTrue(TimeUtil.isPastDate(today.minusDays(1).toString()));
+        assertFalse(TimeUtil.isPastDate(today.toString()));
+        assertFalse(TimeUtil.isPastDate(today.plusDays(1).toString()));
+    }
+}